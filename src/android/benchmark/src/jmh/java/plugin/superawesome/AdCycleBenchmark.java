@@ -0,0 +1,77 @@
+//
+//  AdCycleBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.NamedJavaFunction;
+
+/**
+ * Complete load() -> loaded -> show() -> shown -> (ended) -> closed cycle through the fake ad provider,
+ * with callbacks delivered immediately.
+ * <p>
+ * The closed placement leaves the registry, so every cycle registers it again in load() like an app
+ * that loads the next ad after closing one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdCycleBenchmark {
+    private static final String PLACEMENT_ID = "30473";
+
+    @Param({"interstitial", "video"})
+    public String adUnitType;
+
+    private PluginHarness harness;
+    private NamedJavaFunction load;
+    private NamedJavaFunction show;
+
+    @Setup
+    public void setup() {
+        FakeAdProvider.Scheduler immediate = new FakeAdProvider.Scheduler() {
+            @Override
+            public void schedule(Runnable callback, long delayMs) {
+                callback.run();
+            }
+        };
+
+        harness = new PluginHarness(new FakeAdProvider(immediate, 1));
+        load = harness.function("load");
+        show = harness.function("show");
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public void loadAndShow() {
+        LuaState L = harness.L;
+
+        L.setTop(0);
+        L.pushString(adUnitType);
+        L.pushString(PLACEMENT_ID);
+        load.invoke(L);
+
+        L.setTop(0);
+        L.pushString(PLACEMENT_ID);
+        show.invoke(L);
+    }
+}
@@ -0,0 +1,68 @@
+//
+//  BannerLayoutBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.NamedJavaFunction;
+
+/**
+ * show() of a loaded banner: option parsing, layout math and updating the layout of the attached view.
+ * <p>
+ * A shown banner can be shown again to change its position, so every call runs the complete layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BannerLayoutBenchmark {
+    private static final String PLACEMENT_ID = "30471";
+
+    // alignment names, or a Corona y coordinate (negative values are offsets from the bottom)
+    @Param({"top", "center", "bottom", "120", "-120"})
+    public String y;
+
+    private PluginHarness harness;
+    private NamedJavaFunction show;
+    private LuaState.Table options;
+
+    @Setup
+    public void setup() {
+        harness = new PluginHarness();
+        harness.call("load", "banner", new LuaState.Table("placementId", PLACEMENT_ID, "bannerSize", "BANNER_90"));
+
+        show = harness.function("show");
+        options = new LuaState.Table("y", y.matches("-?\\d+") ? (Object) Integer.valueOf(y) : y);
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public int showBanner() {
+        LuaState L = harness.L;
+
+        L.setTop(0);
+        L.pushString(PLACEMENT_ID);
+        L.pushTable(options);
+
+        return show.invoke(L);
+    }
+}
@@ -0,0 +1,193 @@
+//
+//  DelegateBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.NamedJavaFunction;
+
+import tv.superawesome.sdk.publisher.SAEvent;
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAOrientation;
+
+/**
+ * CoronaSADelegate.onEvent() for the SDK events of a placement, each sent in the state the SDK sends it in:
+ * registry lookup, placement state update and Lua event delivery.
+ * <p>
+ * The ad provider never calls back, so every event comes from the benchmark. Each op walks a placement through a
+ * whole cycle (load() -> events -> show() -> events) and ends where it started; the score is per SDK event and
+ * includes the share of the load() and show() calls that put the placement in the right state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DelegateBenchmark {
+    private static final String PLACEMENT_ID = "30473";
+
+    // longer than any load backoff or no-fill cool-off of the plugin
+    private static final long BACKOFF_SKIP_MS = 60 * 60 * 1000;
+
+    // loads and plays never answer, show() finds every placement ready to play
+    private static final class SilentAdProvider implements AdProvider {
+        SAInterface interstitialListener = null;
+        SAInterface videoListener = null;
+
+        @Override
+        public void init(Activity activity, boolean testMode) {
+        }
+
+        @Override
+        public void setInterstitialListener(SAInterface listener) {
+            interstitialListener = listener;
+        }
+
+        @Override
+        public void loadInterstitial(int placementId, boolean testMode, Context context) {
+        }
+
+        @Override
+        public boolean hasInterstitial(int placementId) {
+            return true;
+        }
+
+        @Override
+        public void playInterstitial(int placementId, boolean parentalGate, SAOrientation orientation, Context context) {
+        }
+
+        @Override
+        public void setVideoListener(SAInterface listener) {
+            videoListener = listener;
+        }
+
+        @Override
+        public void loadVideo(int placementId, boolean testMode, Context context) {
+        }
+
+        @Override
+        public boolean hasVideo(int placementId) {
+            return true;
+        }
+
+        @Override
+        public void playVideo(int placementId, boolean parentalGate, boolean closeButton, boolean smallClickZone, boolean closeAtEnd,
+                              SAOrientation orientation, Context context) {
+        }
+
+        @Override
+        public Banner createBanner(Context context, boolean transparent) {
+            throw new UnsupportedOperationException("banners aren't benchmarked here");
+        }
+    }
+
+    private PluginHarness harness;
+    private NamedJavaFunction load;
+    private NamedJavaFunction show;
+    private SAInterface interstitialDelegate;
+    private SAInterface videoDelegate;
+    private int placementId;
+
+    @Setup
+    public void setup() {
+        SilentAdProvider adProvider = new SilentAdProvider();
+
+        harness = new PluginHarness(adProvider);
+        load = harness.function("load");
+        show = harness.function("show");
+
+        interstitialDelegate = adProvider.interstitialListener;
+        videoDelegate = adProvider.videoListener;
+        placementId = Integer.parseInt(PLACEMENT_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    private void load(String adUnitType) {
+        LuaState L = harness.L;
+
+        L.setTop(0);
+        L.pushString(adUnitType);
+        L.pushString(PLACEMENT_ID);
+        load.invoke(L);
+    }
+
+    private void show() {
+        LuaState L = harness.L;
+
+        L.setTop(0);
+        L.pushString(PLACEMENT_ID);
+        show.invoke(L);
+    }
+
+    // loaded, a late answer to a repeated load, then shown, clicked and closed (the closed placement is unregistered)
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public void interstitialCycle() {
+        load("interstitial");
+        interstitialDelegate.onEvent(placementId, SAEvent.adLoaded);
+        interstitialDelegate.onEvent(placementId, SAEvent.adAlreadyLoaded);
+        show();
+        interstitialDelegate.onEvent(placementId, SAEvent.adShown);
+        interstitialDelegate.onEvent(placementId, SAEvent.adClicked);
+        interstitialDelegate.onEvent(placementId, SAEvent.adClosed);
+    }
+
+    // videos end before they are closed
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void videoCycle() {
+        load("video");
+        videoDelegate.onEvent(placementId, SAEvent.adLoaded);
+        show();
+        videoDelegate.onEvent(placementId, SAEvent.adShown);
+        videoDelegate.onEvent(placementId, SAEvent.adEnded);
+        videoDelegate.onEvent(placementId, SAEvent.adClosed);
+    }
+
+    // the failed placement stays registered and is loaded again in place
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void showFailedCycle() {
+        load("interstitial");
+        interstitialDelegate.onEvent(placementId, SAEvent.adLoaded);
+        show();
+        interstitialDelegate.onEvent(placementId, SAEvent.adFailedToShow);
+    }
+
+    // the failed placement is unregistered and its backoff is skipped so the next load() isn't suppressed
+    @Benchmark
+    public void noFillCycle() {
+        load("interstitial");
+        interstitialDelegate.onEvent(placementId, SAEvent.adEmpty);
+        SystemClock.advance(BACKOFF_SKIP_MS);
+    }
+
+    @Benchmark
+    public void loadFailedCycle() {
+        load("interstitial");
+        interstitialDelegate.onEvent(placementId, SAEvent.adFailedToLoad);
+        SystemClock.advance(BACKOFF_SKIP_MS);
+    }
+}
@@ -0,0 +1,77 @@
+//
+//  EventBurstBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ansca.corona.CoronaRuntimeTaskDispatcher;
+import com.naef.jnlua.LuaState;
+
+import tv.superawesome.sdk.publisher.SAEvent;
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAInterstitialAd;
+
+/**
+ * A burst of SDK events delivered to Lua frame by frame, like startup preloading of many placements.
+ * <p>
+ * Runtime tasks wait for the next frame here, so the burst is queued into a single delivery task and drained
+ * at most maxEventsPerFrame events a frame. Each op queues the burst and runs frames until it is delivered;
+ * the number of frames goes to the blackhole.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventBurstBenchmark {
+    private static final int UNTRACKED_PLACEMENT_ID = 99999;
+
+    @Param({"1", "16", "64"})
+    public int burstSize;
+
+    @Param({"1", "8", "64"})
+    public int maxEventsPerFrame;
+
+    private PluginHarness harness;
+    private SAInterface delegate;
+
+    @Setup
+    public void setup() {
+        harness = new PluginHarness(new SuperAwesomeAdProvider(), new LuaState.Table("maxEventsPerFrame", maxEventsPerFrame));
+        delegate = SAInterstitialAd.getListener();
+        CoronaRuntimeTaskDispatcher.setFramesDriven(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CoronaRuntimeTaskDispatcher.setFramesDriven(false);
+        harness.close();
+    }
+
+    @Benchmark
+    public void deliverBurst(Blackhole blackhole) {
+        for (int i = 0; i < burstSize; i++) {
+            delegate.onEvent(UNTRACKED_PLACEMENT_ID, SAEvent.adClicked);
+        }
+
+        int frames = 0;
+        while (CoronaRuntimeTaskDispatcher.runFrame() > 0) {
+            frames++;
+        }
+        blackhole.consume(frames);
+    }
+}
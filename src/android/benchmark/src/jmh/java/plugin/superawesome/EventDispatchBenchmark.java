@@ -0,0 +1,54 @@
+//
+//  EventDispatchBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import tv.superawesome.sdk.publisher.SAEvent;
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAInterstitialAd;
+
+/**
+ * Cost of queueing an adsRequest event and delivering it to Lua.
+ * <p>
+ * The event is sent for a placement the plugin doesn't track, so only dispatchLuaEvent() and the delivery task run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventDispatchBenchmark {
+    private static final int UNTRACKED_PLACEMENT_ID = 99999;
+
+    private PluginHarness harness;
+    private SAInterface delegate;
+
+    @Setup
+    public void setup() {
+        harness = new PluginHarness();
+        delegate = SAInterstitialAd.getListener();
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public void dispatchLuaEvent() {
+        delegate.onEvent(UNTRACKED_PLACEMENT_ID, SAEvent.adClicked);
+    }
+}
@@ -0,0 +1,330 @@
+//
+//  FakeAdProvider.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import tv.superawesome.sdk.publisher.SAEvent;
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAOrientation;
+
+/**
+ * In-process {@link AdProvider} for offline and load testing (no SDK, no network).
+ * <p>
+ * Loads and shows answer with the same SAEvent callbacks as the SDK after a sampled latency. Fill rate and failure
+ * rates are configurable, and so is where callbacks run (the main thread by default, like the SDK).
+ * Install it with LuaLoader.setAdProvider() before superawesome.init() is called.
+ */
+final class FakeAdProvider implements AdProvider {
+    // callback delay distribution
+    interface Latency {
+        long sampleMs(Random random);
+    }
+
+    // runs SDK callbacks after a delay
+    interface Scheduler {
+        void schedule(Runnable callback, long delayMs);
+    }
+
+    static Latency fixedLatency(final long latencyMs) {
+        return new Latency() {
+            @Override
+            public long sampleMs(Random random) {
+                return latencyMs;
+            }
+        };
+    }
+
+    static Latency uniformLatency(final long minMs, final long maxMs) {
+        return new Latency() {
+            @Override
+            public long sampleMs(Random random) {
+                return minMs + (long) (random.nextDouble() * (maxMs - minMs));
+            }
+        };
+    }
+
+    // long-tailed latency, typical for ad requests
+    static Latency logNormalLatency(final double medianMs, final double sigma) {
+        return new Latency() {
+            @Override
+            public long sampleMs(Random random) {
+                return (long) (medianMs * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    private final class FakeBanner implements Banner {
+        private final View view;
+        private volatile SAInterface listener = null;
+        private volatile boolean hasAd = false;
+        private int visibilityBeforePause = -1;     // -1 when not paused
+
+        FakeBanner(Context context) {
+            view = new FrameLayout(context);
+            view.setVisibility(View.INVISIBLE);
+        }
+
+        @Override
+        public View getView() {
+            return view;
+        }
+
+        @Override
+        public void setListener(SAInterface listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void load(final int placementId, boolean testMode) {
+            if (random.nextDouble() < lostCallbackRate) {
+                return;
+            }
+
+            scheduler.schedule(new Runnable() {
+                public void run() {
+                    SAEvent result = loadResult();
+                    hasAd = (result == SAEvent.adLoaded);
+                    emit(listener, placementId, result);
+                }
+            }, loadLatency.sampleMs(random));
+        }
+
+        @Override
+        public boolean hasAdAvailable() {
+            return hasAd;
+        }
+
+        @Override
+        public void play(Context context) {
+        }
+
+        @Override
+        public void close() {
+            hasAd = false;
+        }
+
+        @Override
+        public void pause() {
+            if (visibilityBeforePause == -1) {
+                visibilityBeforePause = view.getVisibility();
+                view.setVisibility(View.INVISIBLE);
+            }
+        }
+
+        @Override
+        public void resume() {
+            if (visibilityBeforePause != -1) {
+                view.setVisibility(visibilityBeforePause);
+                visibilityBeforePause = -1;
+            }
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final Random random;
+
+    private volatile SAInterface interstitialListener = null;
+    private volatile SAInterface videoListener = null;
+
+    // placements with an ad ready to play
+    private final Set<Integer> loadedInterstitials = Collections.synchronizedSet(new HashSet<Integer>());
+    private final Set<Integer> loadedVideos = Collections.synchronizedSet(new HashSet<Integer>());
+
+    // behavior
+    private volatile Latency loadLatency = logNormalLatency(800, 0.5);
+    private volatile Latency showLatency = fixedLatency(50);
+    private volatile long adDurationMs = 5000;      // time on screen before the ad is closed
+    private volatile double fillRate = 1.0;         // loads that are filled (adEmpty otherwise)
+    private volatile double loadErrorRate = 0;      // loads that fail with adFailedToLoad
+    private volatile double showErrorRate = 0;      // plays that fail with adFailedToShow
+    private volatile double lostCallbackRate = 0;   // loads that never call back
+
+    FakeAdProvider() {
+        this(new Scheduler() {
+            private final Handler handler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void schedule(Runnable callback, long delayMs) {
+                handler.postDelayed(callback, delayMs);
+            }
+        }, System.nanoTime());
+    }
+
+    FakeAdProvider(Scheduler scheduler, long seed) {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+    }
+
+    FakeAdProvider setLoadLatency(Latency latency) {
+        loadLatency = latency;
+        return this;
+    }
+
+    FakeAdProvider setShowLatency(Latency latency) {
+        showLatency = latency;
+        return this;
+    }
+
+    FakeAdProvider setAdDuration(long durationMs) {
+        adDurationMs = durationMs;
+        return this;
+    }
+
+    FakeAdProvider setFillRate(double rate) {
+        fillRate = rate;
+        return this;
+    }
+
+    FakeAdProvider setLoadErrorRate(double rate) {
+        loadErrorRate = rate;
+        return this;
+    }
+
+    FakeAdProvider setShowErrorRate(double rate) {
+        showErrorRate = rate;
+        return this;
+    }
+
+    FakeAdProvider setLostCallbackRate(double rate) {
+        lostCallbackRate = rate;
+        return this;
+    }
+
+    // -------------------------------------------------------
+    // AdProvider
+    // -------------------------------------------------------
+
+    @Override
+    public void init(Activity activity, boolean testMode) {
+    }
+
+    @Override
+    public void setInterstitialListener(SAInterface listener) {
+        interstitialListener = listener;
+    }
+
+    @Override
+    public void loadInterstitial(int placementId, boolean testMode, Context context) {
+        loadFullscreen(placementId, loadedInterstitials, interstitialListener);
+    }
+
+    @Override
+    public boolean hasInterstitial(int placementId) {
+        return loadedInterstitials.contains(placementId);
+    }
+
+    @Override
+    public void playInterstitial(int placementId, boolean parentalGate, SAOrientation orientation, Context context) {
+        playFullscreen(placementId, loadedInterstitials, interstitialListener, false);
+    }
+
+    @Override
+    public void setVideoListener(SAInterface listener) {
+        videoListener = listener;
+    }
+
+    @Override
+    public void loadVideo(int placementId, boolean testMode, Context context) {
+        loadFullscreen(placementId, loadedVideos, videoListener);
+    }
+
+    @Override
+    public boolean hasVideo(int placementId) {
+        return loadedVideos.contains(placementId);
+    }
+
+    @Override
+    public void playVideo(int placementId, boolean parentalGate, boolean closeButton, boolean smallClickZone, boolean closeAtEnd,
+                          SAOrientation orientation, Context context) {
+        playFullscreen(placementId, loadedVideos, videoListener, true);
+    }
+
+    @Override
+    public Banner createBanner(Context context, boolean transparent) {
+        return new FakeBanner(context);
+    }
+
+    // -------------------------------------------------------
+    // simulation
+    // -------------------------------------------------------
+
+    private SAEvent loadResult() {
+        if (random.nextDouble() < loadErrorRate) {
+            return SAEvent.adFailedToLoad;
+        }
+
+        return (random.nextDouble() < fillRate) ? SAEvent.adLoaded : SAEvent.adEmpty;
+    }
+
+    private void loadFullscreen(final int placementId, final Set<Integer> loaded, final SAInterface listener) {
+        if (loaded.contains(placementId)) {
+            emit(listener, placementId, SAEvent.adAlreadyLoaded);
+            return;
+        }
+
+        if (random.nextDouble() < lostCallbackRate) {
+            return;
+        }
+
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                SAEvent result = loadResult();
+                if (result == SAEvent.adLoaded) {
+                    loaded.add(placementId);
+                }
+
+                emit(listener, placementId, result);
+            }
+        }, loadLatency.sampleMs(random));
+    }
+
+    // shown -> (ended) -> closed, or failedToShow
+    private void playFullscreen(final int placementId, final Set<Integer> loaded, final SAInterface listener, final boolean video) {
+        if (!loaded.remove(placementId)) {
+            emit(listener, placementId, SAEvent.adFailedToShow);
+            return;
+        }
+
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                if (random.nextDouble() < showErrorRate) {
+                    emit(listener, placementId, SAEvent.adFailedToShow);
+                    return;
+                }
+
+                emit(listener, placementId, SAEvent.adShown);
+
+                scheduler.schedule(new Runnable() {
+                    public void run() {
+                        if (video) {
+                            emit(listener, placementId, SAEvent.adEnded);
+                        }
+                        emit(listener, placementId, SAEvent.adClosed);
+                    }
+                }, adDurationMs);
+            }
+        }, showLatency.sampleMs(random));
+    }
+
+    private static void emit(SAInterface listener, int placementId, SAEvent event) {
+        if (listener != null) {
+            listener.onEvent(placementId, event);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+//
+//  OptionParsingBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Parsing of complete load() and show() options tables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OptionParsingBenchmark {
+    private static final int LOAD_TABLE_INDEX = 1;
+    private static final int SHOW_TABLE_INDEX = 2;
+
+    private final LuaState L = new LuaState();
+    private final LuaOptionSchema.Values loadValues = LuaLoader.LOAD_OPTIONS.newValues();
+    private final LuaOptionSchema.Values showValues = LuaLoader.SHOW_OPTIONS.newValues();
+
+    @Setup
+    public void setup() {
+        L.pushTable(new LuaState.Table(
+                "placementId", "30471",
+                "bannerSize", "BANNER_90",
+                "bannerTransparency", true,
+                "autoLoad", false
+        ));
+        L.pushTable(new LuaState.Table(
+                "useParentalGate", false,
+                "showVideoCloseButton", true,
+                "closeVideoAtEnd", true,
+                "useSmallClickZone", false,
+                "lockOrientation", "portrait",
+                "y", -20
+        ));
+    }
+
+    @Benchmark
+    public void parseLoadOptions(Blackhole bh) {
+        bh.consume(LuaLoader.LOAD_OPTIONS.parse(L, LOAD_TABLE_INDEX, "options", loadValues));
+        bh.consume(loadValues);
+    }
+
+    @Benchmark
+    public void parseShowOptions(Blackhole bh) {
+        bh.consume(LuaLoader.SHOW_OPTIONS.parse(L, SHOW_TABLE_INDEX, "options", showValues));
+        bh.consume(showValues);
+    }
+}
@@ -0,0 +1,55 @@
+//
+//  PlacementLookupBenchmark.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Placement registry lookups (SDK callbacks, isLoaded() and show()) for a range of registry sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementLookupBenchmark {
+    @Param({"1", "8", "64"})
+    public int placements;
+
+    private final PlacementRegistry<Object> registry = new PlacementRegistry<>();
+    private int[] placementIds;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        placementIds = new int[placements];
+
+        for (int i = 0; i < placements; i++) {
+            placementIds[i] = 30000 + (i * 37);
+            registry.put(placementIds[i], new Object());
+        }
+    }
+
+    @Benchmark
+    public Object lookupHit() {
+        next = (next + 1) % placementIds.length;
+        return registry.get(placementIds[next]);
+    }
+
+    @Benchmark
+    public Object lookupMiss() {
+        return registry.get(1);
+    }
+}
@@ -0,0 +1,80 @@
+//
+//  PluginHarness.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import com.ansca.corona.CoronaActivity;
+import com.ansca.corona.CoronaEnvironment;
+import com.ansca.corona.CoronaRuntime;
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.NamedJavaFunction;
+
+/**
+ * Loads the plugin into a stub Corona runtime and calls init() so benchmarks can drive it like a Lua app.
+ * <p>
+ * The SDK is the stub SuperAwesome SDK unless another ad provider is given.
+ * UI thread work and Lua event delivery run synchronously on the benchmark thread.
+ */
+final class PluginHarness {
+    final LuaState L = new LuaState();
+    final CoronaRuntime runtime = new CoronaRuntime(L);
+    final CoronaActivity activity = new CoronaActivity();
+    private final LuaLoader loader = new LuaLoader();
+
+    PluginHarness() {
+        this(new SuperAwesomeAdProvider());
+    }
+
+    PluginHarness(AdProvider adProvider) {
+        this(adProvider, null);
+    }
+
+    // initOptions is the options table passed to init() (none when null)
+    PluginHarness(AdProvider adProvider, LuaState.Table initOptions) {
+        LuaLoader.setAdProvider(adProvider);
+        CoronaEnvironment.setCoronaActivity(activity);
+        loader.onLoaded(runtime);
+
+        L.pushString("plugin.superawesome");
+        loader.invoke(L);
+
+        // any non-nil value is accepted as the listener
+        if (initOptions == null) {
+            call("init", new LuaState.Table());
+        } else {
+            call("init", new LuaState.Table(), initOptions);
+        }
+    }
+
+    NamedJavaFunction function(String name) {
+        NamedJavaFunction function = L.getFunction(name);
+        if (function == null) {
+            throw new IllegalArgumentException("superawesome." + name + "() is not registered");
+        }
+
+        return function;
+    }
+
+    // call a plugin function with the given arguments (setup only, the varargs array allocates)
+    void call(String name, Object... args) {
+        NamedJavaFunction function = function(name);
+
+        L.setTop(0);
+        for (Object arg : args) {
+            L.pushObject(arg);
+        }
+
+        function.invoke(L);
+        L.setTop(0);
+    }
+
+    void close() {
+        loader.onExiting(runtime);
+        CoronaEnvironment.setCoronaActivity(null);
+        LuaLoader.setAdProvider(new SuperAwesomeAdProvider());
+    }
+}
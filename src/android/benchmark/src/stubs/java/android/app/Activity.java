@@ -0,0 +1,29 @@
+//
+//  Activity.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.app;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.view.WindowManager;
+
+public class Activity extends Context {
+    // UI thread work runs synchronously on the calling (benchmark) thread
+    public void runOnUiThread(Runnable action) {
+        action.run();
+    }
+
+    public WindowManager getWindowManager() {
+        return null;
+    }
+
+    public void registerComponentCallbacks(ComponentCallbacks callback) {
+    }
+
+    public void unregisterComponentCallbacks(ComponentCallbacks callback) {
+    }
+}
@@ -0,0 +1,20 @@
+//
+//  Context.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.content;
+
+import android.content.res.Resources;
+
+public class Context {
+    public Resources getResources() {
+        return null;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+}
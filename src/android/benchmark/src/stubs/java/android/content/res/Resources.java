@@ -0,0 +1,23 @@
+//
+//  Resources.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.content.res;
+
+import android.util.DisplayMetrics;
+
+public class Resources {
+    private final DisplayMetrics displayMetrics = new DisplayMetrics();
+    private final Configuration configuration = new Configuration();
+
+    public DisplayMetrics getDisplayMetrics() {
+        return displayMetrics;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+}
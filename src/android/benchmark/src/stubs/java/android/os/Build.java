@@ -0,0 +1,18 @@
+//
+//  Build.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.os;
+
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = 32;
+    }
+
+    public static class VERSION_CODES {
+        public static final int HONEYCOMB_MR2 = 13;
+    }
+}
@@ -0,0 +1,30 @@
+//
+//  Handler.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.os;
+
+// posted work runs right away on the calling thread (like the UI thread work of the other stubs), delayed work
+// (autoload retries, expiry, cache sweeps) is dropped, the benchmarks only measure the calling thread
+public class Handler {
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+
+    public boolean postDelayed(Runnable r, long delayMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r) {
+    }
+}
@@ -0,0 +1,16 @@
+//
+//  Looper.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.os;
+
+public class Looper {
+    private static final Looper mainLooper = new Looper();
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+}
@@ -0,0 +1,21 @@
+//
+//  SystemClock.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.os;
+
+public class SystemClock {
+    // moved forward by benchmarks that can't wait out the plugin's timers (load backoff, ad expiry)
+    private static volatile long offsetMs = 0;
+
+    public static long elapsedRealtime() {
+        return (System.nanoTime() / 1000000) + offsetMs;
+    }
+
+    public static void advance(long ms) {
+        offsetMs += ms;
+    }
+}
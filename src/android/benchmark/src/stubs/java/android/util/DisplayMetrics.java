@@ -0,0 +1,12 @@
+//
+//  DisplayMetrics.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.util;
+
+public class DisplayMetrics {
+    public float density = 2.0f;
+}
@@ -0,0 +1,28 @@
+//
+//  Display.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+import android.graphics.Point;
+
+public class Display {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    public int getWidth() {
+        return WIDTH;
+    }
+
+    public int getHeight() {
+        return HEIGHT;
+    }
+
+    public void getSize(Point outSize) {
+        outSize.x = WIDTH;
+        outSize.y = HEIGHT;
+    }
+}
@@ -0,0 +1,14 @@
+//
+//  Gravity.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+public class Gravity {
+    public static final int CENTER = 17;
+    public static final int TOP = 48;
+    public static final int BOTTOM = 80;
+}
@@ -0,0 +1,71 @@
+//
+//  View.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+import android.content.Context;
+
+public class View {
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+
+    private final Context context;
+    private ViewParent parent;
+    private ViewGroup.LayoutParams layoutParams;
+    private int visibility = VISIBLE;
+    private int id;
+
+    public View(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public ViewParent getParent() {
+        return parent;
+    }
+
+    void setParent(ViewParent parent) {
+        this.parent = parent;
+    }
+
+    public ViewGroup.LayoutParams getLayoutParams() {
+        return layoutParams;
+    }
+
+    public void setLayoutParams(ViewGroup.LayoutParams params) {
+        layoutParams = params;
+    }
+
+    public int getHeight() {
+        return (layoutParams != null) ? Math.max(layoutParams.height, 0) : 0;
+    }
+
+    public void setVisibility(int visibility) {
+        this.visibility = visibility;
+    }
+
+    public int getVisibility() {
+        return visibility;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void bringToFront() {
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).bringChildToFront(this);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+//
+//  ViewGroup.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+
+public class ViewGroup extends View implements ViewParent {
+    public static class LayoutParams {
+        public static final int MATCH_PARENT = -1;
+        public static final int WRAP_CONTENT = -2;
+
+        public int width;
+        public int height;
+
+        public LayoutParams(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public static class MarginLayoutParams extends LayoutParams {
+        public int topMargin;
+        public int bottomMargin;
+
+        public MarginLayoutParams(int width, int height) {
+            super(width, height);
+        }
+    }
+
+    private final ArrayList<View> children = new ArrayList<>();
+
+    public ViewGroup(Context context) {
+        super(context);
+    }
+
+    public void addView(View child, LayoutParams params) {
+        children.add(child);
+        child.setParent(this);
+        child.setLayoutParams(params);
+    }
+
+    public void removeView(View child) {
+        if (children.remove(child)) {
+            child.setParent(null);
+        }
+    }
+
+    public int getChildCount() {
+        return children.size();
+    }
+
+    public View getChildAt(int index) {
+        return children.get(index);
+    }
+
+    void bringChildToFront(View child) {
+        if (children.remove(child)) {
+            children.add(child);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+//
+//  ViewParent.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+public interface ViewParent {
+}
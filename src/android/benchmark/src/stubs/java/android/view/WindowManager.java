@@ -0,0 +1,12 @@
+//
+//  WindowManager.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.view;
+
+public interface WindowManager {
+    Display getDefaultDisplay();
+}
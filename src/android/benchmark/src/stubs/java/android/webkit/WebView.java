@@ -0,0 +1,23 @@
+//
+//  WebView.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.webkit;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+public class WebView extends ViewGroup {
+    public WebView(Context context) {
+        super(context);
+    }
+
+    public void onPause() {
+    }
+
+    public void onResume() {
+    }
+}
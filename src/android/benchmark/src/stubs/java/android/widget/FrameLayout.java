@@ -0,0 +1,25 @@
+//
+//  FrameLayout.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package android.widget;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+public class FrameLayout extends ViewGroup {
+    public static class LayoutParams extends ViewGroup.MarginLayoutParams {
+        public int gravity;
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+    }
+
+    public FrameLayout(Context context) {
+        super(context);
+    }
+}
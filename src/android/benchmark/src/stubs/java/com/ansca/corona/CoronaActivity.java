@@ -0,0 +1,45 @@
+//
+//  CoronaActivity.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+import android.content.res.Resources;
+import android.graphics.Point;
+import android.view.Display;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+// portrait 1080x1920 display at density 2, Corona content scaled 1:2
+public class CoronaActivity extends android.app.Activity {
+    private final Resources resources = new Resources();
+    private final FrameLayout overlayView = new FrameLayout(this);
+    private final Display display = new Display();
+    private final WindowManager windowManager = new WindowManager() {
+        @Override
+        public Display getDefaultDisplay() {
+            return display;
+        }
+    };
+
+    @Override
+    public Resources getResources() {
+        return resources;
+    }
+
+    @Override
+    public WindowManager getWindowManager() {
+        return windowManager;
+    }
+
+    public FrameLayout getOverlayView() {
+        return overlayView;
+    }
+
+    public Point convertCoronaPointToAndroidPoint(int x, int y) {
+        return new Point(x * 2, y * 2);
+    }
+}
@@ -0,0 +1,27 @@
+//
+//  CoronaEnvironment.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+public class CoronaEnvironment {
+    private static CoronaActivity coronaActivity = null;
+
+    // benchmark helper, the real activity is owned by Corona
+    public static void setCoronaActivity(CoronaActivity activity) {
+        coronaActivity = activity;
+    }
+
+    public static CoronaActivity getCoronaActivity() {
+        return coronaActivity;
+    }
+
+    public static void addRuntimeListener(CoronaRuntimeListener listener) {
+    }
+
+    public static void removeRuntimeListener(CoronaRuntimeListener listener) {
+    }
+}
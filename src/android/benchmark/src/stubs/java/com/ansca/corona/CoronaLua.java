@@ -0,0 +1,36 @@
+//
+//  CoronaLua.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+import com.naef.jnlua.LuaState;
+
+// listeners are accepted as-is and events are popped instead of being called
+public class CoronaLua {
+    public static final int REFNIL = -1;
+
+    private static int nextRef = 1;
+
+    public static boolean isListener(LuaState L, int index, String eventName) {
+        return !L.isNoneOrNil(index);
+    }
+
+    public static int newRef(LuaState L, int index) {
+        return nextRef++;
+    }
+
+    public static void deleteRef(LuaState L, int ref) {
+    }
+
+    public static void newEvent(LuaState L, String eventName) {
+        L.newTable();
+    }
+
+    public static void dispatchEvent(LuaState L, int listenerRef, int nresults) {
+        L.pop(1);
+    }
+}
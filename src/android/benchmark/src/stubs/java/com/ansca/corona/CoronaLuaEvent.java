@@ -0,0 +1,14 @@
+//
+//  CoronaLuaEvent.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+public class CoronaLuaEvent {
+    public static final String ISERROR_KEY = "isError";
+    public static final String RESPONSE_KEY = "response";
+    public static final String PROVIDER_KEY = "provider";
+}
@@ -0,0 +1,22 @@
+//
+//  CoronaRuntime.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+import com.naef.jnlua.LuaState;
+
+public class CoronaRuntime {
+    private final LuaState luaState;
+
+    public CoronaRuntime(LuaState luaState) {
+        this.luaState = luaState;
+    }
+
+    public LuaState getLuaState() {
+        return luaState;
+    }
+}
@@ -0,0 +1,20 @@
+//
+//  CoronaRuntimeListener.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+public interface CoronaRuntimeListener {
+    void onLoaded(CoronaRuntime runtime);
+
+    void onStarted(CoronaRuntime runtime);
+
+    void onSuspended(CoronaRuntime runtime);
+
+    void onResumed(CoronaRuntime runtime);
+
+    void onExiting(CoronaRuntime runtime);
+}
@@ -0,0 +1,12 @@
+//
+//  CoronaRuntimeTask.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+public interface CoronaRuntimeTask {
+    void executeUsing(CoronaRuntime runtime);
+}
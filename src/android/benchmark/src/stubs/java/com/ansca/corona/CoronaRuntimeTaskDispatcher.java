@@ -0,0 +1,56 @@
+//
+//  CoronaRuntimeTaskDispatcher.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.ansca.corona;
+
+import java.util.ArrayDeque;
+
+import com.naef.jnlua.LuaState;
+
+// tasks run synchronously, as if every send() was followed by a frame, unless frames are driven by the benchmark:
+// then sent tasks wait for the next runFrame() like they wait for the next frame of the Corona runtime
+public class CoronaRuntimeTaskDispatcher {
+    private static boolean framesDriven = false;
+    private static final ArrayDeque<CoronaRuntimeTaskDispatcher> pendingDispatchers = new ArrayDeque<>();
+    private static final ArrayDeque<CoronaRuntimeTask> pendingTasks = new ArrayDeque<>();
+
+    private final CoronaRuntime runtime;
+
+    public CoronaRuntimeTaskDispatcher(CoronaRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    public CoronaRuntimeTaskDispatcher(LuaState luaState) {
+        this(new CoronaRuntime(luaState));
+    }
+
+    public void send(CoronaRuntimeTask task) {
+        if (framesDriven) {
+            pendingDispatchers.add(this);
+            pendingTasks.add(task);
+        } else {
+            task.executeUsing(runtime);
+        }
+    }
+
+    // switching back to synchronous tasks drops the ones still waiting
+    public static void setFramesDriven(boolean value) {
+        framesDriven = value;
+        pendingDispatchers.clear();
+        pendingTasks.clear();
+    }
+
+    // run the tasks sent before this frame, tasks they send wait for the next one. returns the number of tasks run
+    public static int runFrame() {
+        int count = pendingTasks.size();
+        for (int i = 0; i < count; i++) {
+            pendingTasks.poll().executeUsing(pendingDispatchers.poll().runtime);
+        }
+
+        return count;
+    }
+}
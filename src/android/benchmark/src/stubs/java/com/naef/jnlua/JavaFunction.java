@@ -0,0 +1,12 @@
+//
+//  JavaFunction.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.naef.jnlua;
+
+public interface JavaFunction {
+    int invoke(LuaState L);
+}
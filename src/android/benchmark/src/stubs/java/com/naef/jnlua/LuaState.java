@@ -0,0 +1,302 @@
+//
+//  LuaState.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.naef.jnlua;
+
+/**
+ * Stand-in for the jnlua Lua state, covering the calls made by the plugin.
+ * <p>
+ * Values live on a fixed size stack without boxing. Option tables are {@link Table} objects built by the benchmarks,
+ * tables created from Java (event tables) are write-only sinks.
+ */
+public class LuaState {
+    // immutable key/value table. array items use Integer keys starting at 1
+    public static final class Table {
+        final Object[] keys;
+        final Object[] values;
+
+        public Table(Object... keyValues) {
+            keys = new Object[keyValues.length / 2];
+            values = new Object[keyValues.length / 2];
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keyValues[i * 2];
+                values[i] = keyValues[i * 2 + 1];
+            }
+        }
+
+        public static Table array(Object... items) {
+            Object[] keyValues = new Object[items.length * 2];
+            for (int i = 0; i < items.length; i++) {
+                keyValues[i * 2] = i + 1;
+                keyValues[i * 2 + 1] = items[i];
+            }
+
+            return new Table(keyValues);
+        }
+
+        int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    private static final Table SINK = new Table();
+    private static final int MAX_STACK = 64;
+
+    // 1-based stack slots
+    private final LuaType[] types = new LuaType[MAX_STACK + 1];
+    private final Object[] objects = new Object[MAX_STACK + 1];
+    private final double[] numbers = new double[MAX_STACK + 1];
+    private final boolean[] booleans = new boolean[MAX_STACK + 1];
+    private int top = 0;
+
+    private NamedJavaFunction[] functions = new NamedJavaFunction[0];
+
+    // -------------------------------------------------------
+    // benchmark helpers
+    // -------------------------------------------------------
+
+    public void setTop(int index) {
+        while (top > index) {
+            objects[top--] = null;
+        }
+        while (top < index) {
+            pushNil();
+        }
+    }
+
+    public void pushTable(Table table) {
+        push(LuaType.TABLE).objects[top] = table;
+    }
+
+    // returns a function registered by a library, or null
+    public NamedJavaFunction getFunction(String name) {
+        for (NamedJavaFunction function : functions) {
+            if (function.getName().equals(name)) {
+                return function;
+            }
+        }
+
+        return null;
+    }
+
+    // -------------------------------------------------------
+    // jnlua API
+    // -------------------------------------------------------
+
+    public int getTop() {
+        return top;
+    }
+
+    public LuaType type(int index) {
+        int slot = absIndex(index);
+        return ((slot < 1) || (slot > top)) ? null : types[slot];
+    }
+
+    public String typeName(int index) {
+        LuaType type = type(index);
+        return (type == null) ? "no value" : type.name().toLowerCase();
+    }
+
+    public boolean isNoneOrNil(int index) {
+        LuaType type = type(index);
+        return (type == null) || (type == LuaType.NIL);
+    }
+
+    public boolean isNil(int index) {
+        return type(index) == LuaType.NIL;
+    }
+
+    public boolean isTable(int index) {
+        return type(index) == LuaType.TABLE;
+    }
+
+    public boolean isString(int index) {
+        LuaType type = type(index);
+        return (type == LuaType.STRING) || (type == LuaType.NUMBER);
+    }
+
+    public String toString(int index) {
+        int slot = absIndex(index);
+        if (types[slot] == LuaType.NUMBER) {
+            return Double.toString(numbers[slot]);
+        }
+
+        return (types[slot] == LuaType.STRING) ? (String) objects[slot] : null;
+    }
+
+    public boolean toBoolean(int index) {
+        int slot = absIndex(index);
+        return (types[slot] == LuaType.BOOLEAN) ? booleans[slot] : (types[slot] != LuaType.NIL);
+    }
+
+    public double toNumber(int index) {
+        int slot = absIndex(index);
+        return (types[slot] == LuaType.NUMBER) ? numbers[slot] : 0;
+    }
+
+    public int toInteger(int index) {
+        return (int) toNumber(index);
+    }
+
+    public void pushNil() {
+        push(LuaType.NIL);
+    }
+
+    public void pushBoolean(boolean value) {
+        push(LuaType.BOOLEAN).booleans[top] = value;
+    }
+
+    public void pushNumber(double value) {
+        push(LuaType.NUMBER).numbers[top] = value;
+    }
+
+    public void pushInteger(int value) {
+        pushNumber(value);
+    }
+
+    public void pushString(String value) {
+        if (value == null) {
+            pushNil();
+        } else {
+            push(LuaType.STRING).objects[top] = value;
+        }
+    }
+
+    public void pushValue(int index) {
+        int slot = absIndex(index);
+        push(types[slot]);
+        objects[top] = objects[slot];
+        numbers[top] = numbers[slot];
+        booleans[top] = booleans[slot];
+    }
+
+    public void pop(int count) {
+        setTop(top - count);
+    }
+
+    public void newTable() {
+        pushTable(SINK);
+    }
+
+    public void newTable(int arrayCount, int recordCount) {
+        newTable();
+    }
+
+    // pops a key and pushes the next key/value pair of the table at index
+    public boolean next(int index) {
+        Table table = table(index);
+        int next = isNil(-1) ? 0 : (table.indexOf(keyAt(top)) + 1);
+        pop(1);
+
+        if (next >= table.keys.length) {
+            return false;
+        }
+
+        pushObject(table.keys[next]);
+        pushObject(table.values[next]);
+
+        return true;
+    }
+
+    public void rawGet(int index, int key) {
+        Table table = table(index);
+        int entry = table.indexOf(key);
+
+        pushObject((entry >= 0) ? table.values[entry] : null);
+    }
+
+    public void rawSet(int index, int key) {
+        pop(1);
+    }
+
+    public void rawSet(int index) {
+        pop(2);
+    }
+
+    public void getField(int index, String key) {
+        Table table = table(index);
+        int entry = table.indexOf(key);
+
+        pushObject((entry >= 0) ? table.values[entry] : null);
+    }
+
+    public void setField(int index, String key) {
+        pop(1);
+    }
+
+    public int length(int index) {
+        Table table = table(index);
+        int length = 0;
+
+        while (table.indexOf(length + 1) >= 0) {
+            length++;
+        }
+
+        return length;
+    }
+
+    public void register(String moduleName, NamedJavaFunction[] functions) {
+        this.functions = functions;
+    }
+
+    // -------------------------------------------------------
+    // stack helpers
+    // -------------------------------------------------------
+
+    private int absIndex(int index) {
+        return (index < 0) ? (top + 1 + index) : index;
+    }
+
+    private LuaState push(LuaType type) {
+        if (top == MAX_STACK) {
+            throw new IllegalStateException("stack overflow");
+        }
+
+        top++;
+        types[top] = type;
+        objects[top] = null;
+
+        return this;
+    }
+
+    public void pushObject(Object value) {
+        if (value == null) {
+            pushNil();
+        } else if (value instanceof Boolean) {
+            pushBoolean((Boolean) value);
+        } else if (value instanceof Number) {
+            pushNumber(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            pushString((String) value);
+        } else if (value instanceof Table) {
+            pushTable((Table) value);
+        } else {
+            throw new IllegalArgumentException("unsupported value " + value);
+        }
+    }
+
+    private Object keyAt(int slot) {
+        // keys are strings or integer array indices
+        return (types[slot] == LuaType.NUMBER) ? (Object) (int) numbers[slot] : objects[slot];
+    }
+
+    private Table table(int index) {
+        int slot = absIndex(index);
+        if (types[slot] != LuaType.TABLE) {
+            throw new IllegalArgumentException("table expected at " + index);
+        }
+
+        return (Table) objects[slot];
+    }
+}
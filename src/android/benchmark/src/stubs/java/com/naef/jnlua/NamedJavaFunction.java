@@ -0,0 +1,12 @@
+//
+//  NamedJavaFunction.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package com.naef.jnlua;
+
+public interface NamedJavaFunction extends JavaFunction {
+    String getName();
+}
@@ -0,0 +1,15 @@
+//
+//  AwesomeAds.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package tv.superawesome.sdk.publisher;
+
+import android.app.Activity;
+
+public class AwesomeAds {
+    public static void init(Activity activity, boolean testMode) {
+    }
+}
@@ -0,0 +1,49 @@
+//
+//  SABannerAd.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package tv.superawesome.sdk.publisher;
+
+import android.content.Context;
+import android.widget.FrameLayout;
+
+// every load fills immediately
+public class SABannerAd extends FrameLayout {
+    private SAInterface listener = null;
+    private boolean hasAd = false;
+
+    public SABannerAd(Context context) {
+        super(context);
+    }
+
+    public void setListener(SAInterface value) {
+        listener = value;
+    }
+
+    public void setTestMode(boolean value) {
+    }
+
+    public void setColor(boolean value) {
+    }
+
+    public void load(int placementId) {
+        hasAd = true;
+        if (listener != null) {
+            listener.onEvent(placementId, SAEvent.adLoaded);
+        }
+    }
+
+    public boolean hasAdAvailable() {
+        return hasAd;
+    }
+
+    public void play(Context context) {
+    }
+
+    public void close() {
+        hasAd = false;
+    }
+}
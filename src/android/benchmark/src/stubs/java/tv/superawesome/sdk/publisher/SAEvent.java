@@ -0,0 +1,12 @@
+//
+//  SAEvent.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package tv.superawesome.sdk.publisher;
+
+public enum SAEvent {
+    adLoaded, adEmpty, adFailedToLoad, adAlreadyLoaded, adShown, adFailedToShow, adClicked, adEnded, adClosed
+}
@@ -0,0 +1,12 @@
+//
+//  SAInterface.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package tv.superawesome.sdk.publisher;
+
+public interface SAInterface {
+    void onEvent(int placementId, SAEvent event);
+}
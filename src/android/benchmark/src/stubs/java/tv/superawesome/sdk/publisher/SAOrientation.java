@@ -0,0 +1,12 @@
+//
+//  SAOrientation.java
+//  SuperAwesome Plugin Benchmarks
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package tv.superawesome.sdk.publisher;
+
+public enum SAOrientation {
+    ANY, PORTRAIT, LANDSCAPE
+}
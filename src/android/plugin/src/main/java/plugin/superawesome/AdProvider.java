@@ -0,0 +1,68 @@
+//
+//  AdProvider.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAOrientation;
+
+/**
+ * The ad SDK calls made by the plugin.
+ * <p>
+ * The load/show/event pipeline only talks to the SDK through this interface so it can run against
+ * a fake (the benchmarks' FakeAdProvider) instead of the SuperAwesome SDK ({@link SuperAwesomeAdProvider}).
+ * Events are reported through SAInterface listeners. All calls except init() are made on the UI thread.
+ */
+interface AdProvider {
+    // a banner ad and the view that displays it
+    interface Banner {
+        View getView();
+
+        void setListener(SAInterface listener);
+
+        void load(int placementId, boolean testMode);
+
+        boolean hasAdAvailable();
+
+        void play(Context context);
+
+        void close();
+
+        // stop and restart the ad's activity while the app is in the background
+        void pause();
+
+        void resume();
+    }
+
+    void init(Activity activity, boolean testMode);
+
+    // interstitials
+    void setInterstitialListener(SAInterface listener);
+
+    void loadInterstitial(int placementId, boolean testMode, Context context);
+
+    boolean hasInterstitial(int placementId);
+
+    void playInterstitial(int placementId, boolean parentalGate, SAOrientation orientation, Context context);
+
+    // videos
+    void setVideoListener(SAInterface listener);
+
+    void loadVideo(int placementId, boolean testMode, Context context);
+
+    boolean hasVideo(int placementId);
+
+    void playVideo(int placementId, boolean parentalGate, boolean closeButton, boolean smallClickZone, boolean closeAtEnd,
+                   SAOrientation orientation, Context context);
+
+    // banners (the view is created hidden)
+    Banner createBanner(Context context, boolean transparent);
+}
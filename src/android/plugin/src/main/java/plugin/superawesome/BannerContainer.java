@@ -0,0 +1,85 @@
+//
+//  BannerContainer.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * Persistent container in the Corona overlay that banner views stay attached to.
+ * <p>
+ * The full screen container is created the first time a banner is attached to an overlay. Banners are attached
+ * invisibly when they load and remain attached between shows, whatever their position: the gravity and margins of
+ * their layout params place them, so show and hide only change visibility and layout params, never the hierarchy.
+ * The container doesn't consume touches, so input outside of the banners reaches the Corona view.
+ * NOTE: only safe to use on the UI thread!
+ */
+final class BannerContainer {
+    private FrameLayout container = null;
+    private ViewGroup overlay = null;
+
+    // the container in the given overlay, attached on first use (or when the activity changed)
+    private FrameLayout container(ViewGroup overlayView) {
+        if (overlay != overlayView) {
+            clear();
+            overlay = overlayView;
+        }
+
+        if (container == null) {
+            container = new FrameLayout(overlayView.getContext());
+            overlayView.addView(container, new FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                    FrameLayout.LayoutParams.MATCH_PARENT
+            ));
+        }
+
+        return container;
+    }
+
+    // true if the view is attached to the container of the overlay
+    boolean contains(ViewGroup overlayView, View bannerView) {
+        return (overlay == overlayView) && (container != null) && (bannerView.getParent() == container);
+    }
+
+    // attach a banner view to the container, moving it from another parent if needed. the view keeps its visibility
+    void attach(ViewGroup overlayView, View bannerView, FrameLayout.LayoutParams params) {
+        if (contains(overlayView, bannerView)) {
+            return;
+        }
+
+        detach(bannerView);
+        container(overlayView).addView(bannerView, params);
+    }
+
+    // remove a banner view from the container
+    void detach(View bannerView) {
+        if (bannerView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) bannerView.getParent()).removeView(bannerView);
+        }
+    }
+
+    // keep the container above other overlay views (native text fields, web views, ...) without moving it when it already is
+    void bringToFront(ViewGroup overlayView) {
+        int childCount = overlayView.getChildCount();
+
+        if ((container != null) && (childCount > 0) && (overlayView.getChildAt(childCount - 1) != container)) {
+            container.bringToFront();
+        }
+    }
+
+    // remove the container (and the banners it holds) from the overlay
+    void clear() {
+        if ((container != null) && (overlay != null)) {
+            overlay.removeView(container);
+        }
+
+        container = null;
+        overlay = null;
+    }
+}
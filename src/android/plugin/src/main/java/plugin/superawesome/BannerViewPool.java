@@ -0,0 +1,83 @@
+//
+//  BannerViewPool.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.ArrayDeque;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.View;
+
+/**
+ * Bounded pool of banner views so rotating banners reuses views instead of constructing new ones.
+ * <p>
+ * Views are keyed by banner height and transparency, reset when released and reloaded by the caller.
+ * Pooled views may stay attached (hidden) to the overlay, see BannerContainer.
+ * NOTE: only safe to use on the UI thread!
+ */
+final class BannerViewPool {
+    private final SparseArray<ArrayDeque<AdProvider.Banner>> pooledViews = new SparseArray<>();
+    private final int maxPooledViews;
+    private int pooledCount = 0;
+
+    BannerViewPool(int maxPooledViews) {
+        this.maxPooledViews = maxPooledViews;
+    }
+
+    static int key(int height, boolean transparent) {
+        return (height << 1) | (transparent ? 1 : 0);
+    }
+
+    // returns a pooled view created for the given context, or null if none is available
+    AdProvider.Banner acquire(int key, Context context) {
+        ArrayDeque<AdProvider.Banner> views = pooledViews.get(key);
+
+        while ((views != null) && !views.isEmpty()) {
+            AdProvider.Banner banner = views.poll();
+            pooledCount--;
+
+            // views can't move between activities
+            if (banner.getView().getContext() == context) {
+                return banner;
+            }
+        }
+
+        return null;
+    }
+
+    // reset a view and keep it for reuse. returns false if the pool is full
+    boolean release(int key, AdProvider.Banner banner) {
+        banner.resume();    // in case it was released while the runtime was suspended
+        banner.getView().setVisibility(View.INVISIBLE);
+        banner.setListener(null);
+
+        if (pooledCount >= maxPooledViews) {
+            return false;
+        }
+
+        ArrayDeque<AdProvider.Banner> views = pooledViews.get(key);
+        if (views == null) {
+            views = new ArrayDeque<>();
+            pooledViews.put(key, views);
+        }
+
+        views.offer(banner);
+        pooledCount++;
+
+        return true;
+    }
+
+    int size() {
+        return pooledCount;
+    }
+
+    void clear() {
+        pooledViews.clear();
+        pooledCount = 0;
+    }
+}
@@ -0,0 +1,93 @@
+//
+//  DeferredLoadQueue.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Loads held back while the Corona runtime is suspended, run again when it resumes.
+ * <p>
+ * Each placement has at most one deferred load (keyed by its instance): a later request replaces the earlier one
+ * unless that one has a higher priority. Loads run by priority, then in the order they were deferred.
+ * NOTE: only safe to use on the UI thread!
+ */
+final class DeferredLoadQueue {
+    static final int PRIORITY_REQUESTED = 0;   // load() and loadMany() calls
+    static final int PRIORITY_RELOAD = 1;      // autoload reloads and retries
+
+    private static final class Entry {
+        final Object key;
+        int priority;
+        long sequence;
+        Runnable task;
+
+        Entry(Object key) {
+            this.key = key;
+        }
+    }
+
+    private static final Comparator<Entry> RUN_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if (a.priority != b.priority) {
+                return (a.priority < b.priority) ? -1 : 1;
+            }
+
+            return (a.sequence < b.sequence) ? -1 : ((a.sequence == b.sequence) ? 0 : 1);
+        }
+    };
+
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private long nextSequence = 0;
+
+    void offer(Object key, int priority, Runnable task) {
+        Entry entry = null;
+        for (Entry existing : entries) {
+            if (existing.key == key) {
+                entry = existing;
+                break;
+            }
+        }
+
+        if (entry == null) {
+            entry = new Entry(key);
+            entries.add(entry);
+        } else if (entry.priority < priority) {
+            return;
+        }
+
+        entry.priority = priority;
+        entry.sequence = nextSequence++;
+        entry.task = task;
+    }
+
+    // run and remove all deferred loads. loads deferred again while running are kept for the next call
+    void runAll() {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        ArrayList<Entry> pending = new ArrayList<>(entries);
+        entries.clear();
+        Collections.sort(pending, RUN_ORDER);
+
+        for (Entry entry : pending) {
+            entry.task.run();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+}
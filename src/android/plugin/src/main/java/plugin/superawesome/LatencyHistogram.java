@@ -0,0 +1,87 @@
+//
+//  LatencyHistogram.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram that can be recorded from any thread without locking.
+ * <p>
+ * Buckets are powers of two in milliseconds (bucket 0 is below 1 ms, bucket i covers [2^(i-1), 2^i) ms and the
+ * last bucket is unbounded), so percentiles are reported as the upper bound of their bucket.
+ */
+final class LatencyHistogram {
+    private static final int BUCKET_COUNT = 18;     // the last bounded bucket ends at 65.5 s
+    private static final long NANOS_PER_MS = 1000000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+
+        long ms = nanos / NANOS_PER_MS;
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(ms), BUCKET_COUNT - 1);
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while ((nanos > max) && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    double meanMs() {
+        long samples = count.get();
+        return (samples > 0) ? ((double) totalNanos.get() / samples / NANOS_PER_MS) : 0;
+    }
+
+    double maxMs() {
+        return (double) maxNanos.get() / NANOS_PER_MS;
+    }
+
+    // upper bound of the bucket holding the given percentile (0..1), capped by the max
+    double percentileMs(double percentile) {
+        long samples = count.get();
+        if (samples == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * samples));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min((double) (1L << i), maxMs());
+            }
+        }
+
+        return maxMs();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+}
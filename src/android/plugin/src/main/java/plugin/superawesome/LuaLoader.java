@@ -7,21 +7,40 @@
 
 package plugin.superawesome;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Math.ceil;
 import static java.lang.Math.random;
 
+import android.content.ComponentCallbacks;
+import android.content.res.Configuration;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.Display;
 import android.view.View;
 import android.view.Gravity;
-import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.graphics.Point;
 import android.widget.FrameLayout;
 
 import static android.content.res.Configuration.ORIENTATION_PORTRAIT;
 
+import plugin.superawesome.LuaOptionSchema.Option;
+
+import static plugin.superawesome.LuaOptionSchema.TYPE_BOOLEAN;
+import static plugin.superawesome.LuaOptionSchema.TYPE_NUMBER;
+import static plugin.superawesome.LuaOptionSchema.TYPE_STRING;
+import static plugin.superawesome.LuaOptionSchema.option;
+
 import com.naef.jnlua.LuaState;
 import com.naef.jnlua.LuaType;
 import com.naef.jnlua.JavaFunction;
@@ -37,10 +56,6 @@ import com.ansca.corona.CoronaRuntimeTaskDispatcher;
 import com.ansca.corona.CoronaLuaEvent;
 
 // SDK provider imports
-import tv.superawesome.sdk.publisher.AwesomeAds;
-import tv.superawesome.sdk.publisher.SABannerAd;
-import tv.superawesome.sdk.publisher.SAInterstitialAd;
-import tv.superawesome.sdk.publisher.SAVideoAd;
 import tv.superawesome.sdk.publisher.SAEvent;
 import tv.superawesome.sdk.publisher.SAOrientation;
 import tv.superawesome.sdk.publisher.SAInterface;
@@ -66,7 +81,9 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
     // App Wall isn't implemented as Google Play resticts usage for child-directed apps
 
     // valid ad types
-    private static final List<String> validAdTypes = new ArrayList<>();
+    private static final List<String> validAdTypes = Collections.unmodifiableList(Arrays.asList(
+            TYPE_BANNER, TYPE_INTERSTITIAL, TYPE_VIDEO
+    ));
 
     // banner sizes
     private static final String BANNER_50 = "BANNER_50";
@@ -78,8 +95,10 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
     private static final String BANNER_ALIGN_CENTER = "center";
     private static final String BANNER_ALIGN_BOTTOM = "bottom";
 
-    // valid ad types
-    private static final List<String> validBannerPositions = new ArrayList<>();
+    // valid banner positions
+    private static final List<String> validBannerPositions = Collections.unmodifiableList(Arrays.asList(
+            BANNER_ALIGN_TOP, BANNER_ALIGN_CENTER, BANNER_ALIGN_BOTTOM
+    ));
 
     // ad orientations
     private static final String LOCK_PORTRAIT = "portrait";
@@ -98,17 +117,30 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
     private static final String PHASE_CLOSED = "closed";
     private static final String PHASE_HIDDEN = "hidden";
     private static final String PHASE_CLICKED = "clicked";
+    private static final String PHASE_EXPIRED = "expired";
+
+    // event subscription bits, one per phase in this order (see the init and load 'events' option)
+    private static final String[] SUBSCRIBABLE_PHASES = {
+            PHASE_INIT, PHASE_LOADED, PHASE_DISPLAYED, PHASE_REFRESHED, PHASE_PLAYBACK_ENDED, PHASE_FAILED,
+            PHASE_CLOSED, PHASE_HIDDEN, PHASE_CLICKED, PHASE_EXPIRED
+    };
+    private static final int EVENT_INIT = 1;
+    private static final int EVENT_LOADED = 1 << 1;
+    private static final int EVENT_DISPLAYED = 1 << 2;
+    private static final int EVENT_PLAYBACK_ENDED = 1 << 4;
+    private static final int EVENT_FAILED = 1 << 5;
+    private static final int EVENT_CLOSED = 1 << 6;
+    private static final int EVENT_HIDDEN = 1 << 7;
+    private static final int EVENT_CLICKED = 1 << 8;
+    private static final int EVENT_EXPIRED = 1 << 9;
+    private static final int ALL_EVENTS = (1 << SUBSCRIBABLE_PHASES.length) - 1;
 
     // response codes
     private static final String RESPONSE_LOADFAILED = "failedToLoad";
     private static final String RESPONSE_SHOWFAILED = "failedToShow";
     private static final String RESPONSE_ALREADY_LOADED = "alreadyLoaded";
     private static final String RESPONSE_NOADS = "noAdsAvailable";
-
-    // message constants
-    private static final String CORONA_TAG = "Corona";
-    private static final String ERROR_MSG = "ERROR: ";
-    private static final String WARNING_MSG = "WARNING: ";
+    private static final String RESPONSE_LOAD_SUPPRESSED = "loadSuppressed";
 
     // add missing event keys
     private static final String EVENT_PHASE_KEY = "phase";
@@ -116,48 +148,728 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
     private static final String EVENT_TYPE_KEY = "type";
     private static final String EVENT_PLACEMENTID_KEY = "placementId";
 
-    // saved objects (apiKey, ad state, etc)
-    static Map<String, Object> superAwesomeObjects = new HashMap<>();
-
-    // ad dictionary keys
-    private static final String Y_RATIO_KEY = "yRatio";        // used to calculate Corona -> UIKit coordinate ratio
-    private static final String TESTMODE_KEY = "testMode";
-
-    private static int coronaListener = CoronaLua.REFNIL;
-    private static CoronaRuntimeTaskDispatcher coronaRuntimeTaskDispatcher = null;
-
-    private static String functionSignature = "";
+    private static final int INVALID_PLACEMENT_ID = -1;
+
+    // interstitials and videos leave the registry once closed (or idle after a failure), which keeps it bounded
+    // when many placement ids are used. loads of new placements fail while it is full
+    private static final int MAX_PLACEMENTS = 256;
+
+    // stats (with the load backoff) and id strings outlive the registry entries of their placements, up to this many.
+    // past it, the ones of placements no runtime has registered are evicted
+    private static final int MAX_PLACEMENT_STATS = 2 * MAX_PLACEMENTS;
+
+    // placement states
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_LOADING = 1;
+    private static final int STATE_LOADED = 2;
+    private static final int STATE_SHOWING = 3;
+    private static final int STATE_CLOSED = 4;
+    private static final int STATE_FAILED = 5;
+    private static final int STATE_EXPIRED = 6;
+    private static final int STATE_REMOVED = 7;     // left the registry, a later load creates a new instance
+
+    // keeps the placements that haven't left the registry, see compactRegistry()
+    private static final PlacementRegistry.Filter<CoronaAdInstance> NOT_REMOVED = new PlacementRegistry.Filter<CoronaAdInstance>() {
+        public boolean retain(CoronaAdInstance adInstance) {
+            return adInstance.state.get() != STATE_REMOVED;
+        }
+    };
+
+    // ad cache limits (0 = unlimited)
+    private static final long MAX_CACHE_SWEEP_INTERVAL_MS = 60000;
+
+    // deferSdkInit: how long to wait for a Corona activity before trying to initialize the SDK again
+    private static final long SDK_INIT_RETRY_DELAY_MS = 100;
+
+    // Lua event delivery (see RuntimeContext)
+    private static final int DEFAULT_MAX_EVENTS_PER_FRAME = 8;
+    private static final int MAX_POOLED_EVENTS = 32;
+
+    // the state of each Corona runtime the plugin is loaded in (guarded by runtimeContexts)
+    // the last one is the runtime of the current activity, sdkContext the one whose delegates the SDK calls
+    // (sdkContext and the SDK listeners are switched together under sdkLock)
+    private static final List<RuntimeContext> runtimeContexts = new ArrayList<>();
+    private static final Object sdkLock = new Object();
+    private static volatile RuntimeContext sdkContext = null;
+
+    // placement id strings, cached so SDK callbacks don't format a new string per event
+    private static final SparseArray<String> placementIdStrings = new SparseArray<>();
+
+    // reusable banner views per runtime (see RuntimeContext)
+    private static final int MAX_POOLED_BANNER_VIEWS = 4;
+
+    // the layout computed by layoutBanner() (UI thread only)
+    private static final FrameLayout.LayoutParams bannerLayout = new FrameLayout.LayoutParams(
+            FrameLayout.LayoutParams.MATCH_PARENT,
+            FrameLayout.LayoutParams.WRAP_CONTENT
+    );
+
+    // failed loads back off exponentially (with jitter), repeated no-fills open a circuit breaker
+    // that suppresses loads of the placement for a cool-off window
+    private static final long LOAD_BACKOFF_BASE_MS = 5000;
+    private static final long LOAD_BACKOFF_MAX_MS = 5 * 60 * 1000;
+    private static final int NO_FILL_CIRCUIT_THRESHOLD = 5;
+    private static final long NO_FILL_COOL_OFF_MS = 10 * 60 * 1000;
+
+    // a load or show whose SDK callback never comes fails after this long, so the placement isn't stuck
+    // loading or showing (a show only waits for adShown, the ad may then stay on screen as long as it likes)
+    private static final long LOAD_TIMEOUT_MS = 60 * 1000;
+    private static final long SHOW_TIMEOUT_MS = 30 * 1000;
+
+    private static final Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    // load/show statistics per placement and per ad type, and time spent by events in the delivery queue
+    // placement stats survive hide() and reloads, everything is reset when the last runtime exits
+    private static final PlacementRegistry<PlacementStats> placementStats = new PlacementRegistry<>();
+    private static final PlacementStats interstitialStats = new PlacementStats(null, TYPE_INTERSTITIAL, null);
+    private static final PlacementStats videoStats = new PlacementStats(null, TYPE_VIDEO, null);
+    private static final PlacementStats bannerStats = new PlacementStats(null, TYPE_BANNER, null);
+    private static final LatencyHistogram eventQueueLatency = new LatencyHistogram();
+
+    // the ad SDK (replaced by a fake in the benchmarks)
+    private static volatile AdProvider adProvider = new SuperAwesomeAdProvider();
+
+    // lifecycle trace written by dumpTrace() (disabled unless init() sets a traceBufferSize)
+    private static volatile TraceBuffer trace = TraceBuffer.DISABLED;
+
+    // init() options
+    private static final Option INIT_TEST_MODE = option("testMode", TYPE_BOOLEAN);
+    private static final Option INIT_AUTO_LOAD = option("autoLoad", TYPE_BOOLEAN);
+    private static final Option INIT_AD_EXPIRATION = option("adExpiration", TYPE_NUMBER);
+    private static final Option INIT_MAX_LOADED_ADS = option("maxLoadedAds", TYPE_NUMBER);
+    private static final Option INIT_MAX_EVENTS_PER_FRAME = option("maxEventsPerFrame", TYPE_NUMBER);
+    private static final Option INIT_TRACE_BUFFER_SIZE = option("traceBufferSize", TYPE_NUMBER);
+    private static final Option INIT_LOG_LEVEL = option("logLevel", TYPE_STRING);
+    private static final Option INIT_DEFER_SDK_INIT = option("deferSdkInit", TYPE_BOOLEAN);
+    private static final Option INIT_EVENTS = option("events", TYPE_STRING);
+    private static final LuaOptionSchema INIT_OPTIONS = LuaOptionSchema.compile(
+            INIT_TEST_MODE, INIT_AUTO_LOAD, INIT_AD_EXPIRATION, INIT_MAX_LOADED_ADS, INIT_MAX_EVENTS_PER_FRAME,
+            INIT_TRACE_BUFFER_SIZE, INIT_LOG_LEVEL, INIT_DEFER_SDK_INIT, INIT_EVENTS
+    );
+
+    // load() options. loadMany() specs also carry the adUnitType
+    private static final Option LOAD_PLACEMENT_ID = option("placementId", TYPE_STRING);
+    private static final Option LOAD_BANNER_SIZE = option("bannerSize", TYPE_STRING);
+    private static final Option LOAD_BANNER_TRANSPARENCY = option("bannerTransparency", TYPE_BOOLEAN);
+    private static final Option LOAD_AUTO_LOAD = option("autoLoad", TYPE_BOOLEAN);
+    private static final Option LOAD_EVENTS = option("events", TYPE_STRING);
+    private static final Option LOAD_AD_UNIT_TYPE = option("adUnitType", TYPE_STRING);
+    static final LuaOptionSchema LOAD_OPTIONS = LuaOptionSchema.compile(
+            LOAD_PLACEMENT_ID, LOAD_BANNER_SIZE, LOAD_BANNER_TRANSPARENCY, LOAD_AUTO_LOAD, LOAD_EVENTS
+    );
+    private static final LuaOptionSchema LOAD_SPEC = LOAD_OPTIONS.extend(LOAD_AD_UNIT_TYPE);
+
+    // show() options. showMany() specs also carry the placementId
+    private static final Option SHOW_USE_PARENTAL_GATE = option("useParentalGate", TYPE_BOOLEAN);
+    private static final Option SHOW_VIDEO_CLOSE_BUTTON = option("showVideoCloseButton", TYPE_BOOLEAN);
+    private static final Option SHOW_CLOSE_VIDEO_AT_END = option("closeVideoAtEnd", TYPE_BOOLEAN);
+    private static final Option SHOW_USE_SMALL_CLICK_ZONE = option("useSmallClickZone", TYPE_BOOLEAN);
+    private static final Option SHOW_LOCK_ORIENTATION = option("lockOrientation", TYPE_STRING);
+    private static final Option SHOW_Y = option("y", TYPE_STRING | TYPE_NUMBER);
+    private static final Option SHOW_Y_ALIGN = option("yAlign", TYPE_STRING); // legacy API (use y instead)
+    private static final Option SHOW_PLACEMENT_ID = option("placementId", TYPE_STRING);
+    static final LuaOptionSchema SHOW_OPTIONS = LuaOptionSchema.compile(
+            SHOW_USE_PARENTAL_GATE, SHOW_VIDEO_CLOSE_BUTTON, SHOW_CLOSE_VIDEO_AT_END, SHOW_USE_SMALL_CLICK_ZONE,
+            SHOW_LOCK_ORIENTATION, SHOW_Y, SHOW_Y_ALIGN
+    );
+    private static final LuaOptionSchema SHOW_SPEC = SHOW_OPTIONS.extend(SHOW_PLACEMENT_ID);
 
     // ----------------------------------------------------------------------------------
     // Helper classes to keep track of information not available in the SDK base classes
     // ----------------------------------------------------------------------------------
 
-    private class CoronaAdInstance {
-        Object adInstance;
-        String adType;
-        float height;
+    // pooled Lua event record. fields map directly to the adsRequest event keys
+    private static final class CoronaAdEvent {
+        String phase;
+        String type;
+        String placementId;
+        String response;        // non-null for error events
+        int listenerKey = INVALID_PLACEMENT_ID;     // placement whose listener gets the event, if it has one
+        long queuedAt;          // System.nanoTime() when queued
+        CoronaAdInstance released;  // no phase: release the listener of this placement, which left the registry
+        CoronaAdEvent next;     // link in the pending queue or free list
+
+        void reset() {
+            phase = null;
+            type = null;
+            placementId = null;
+            response = null;
+            listenerKey = INVALID_PLACEMENT_ID;
+            released = null;
+            next = null;
+        }
+    }
+
+    // plugin state of one Corona runtime, created when the plugin is required and dropped when the runtime exits
+    // a runtime started while the previous one is still exiting gets its own state, so neither clobbers the other
+    private class RuntimeContext {
+        final LuaState luaState;
+        final CoronaRuntimeTaskDispatcher dispatcher;
+        volatile boolean exiting = false;       // set by onExiting(), no events are queued from then on
+        CoronaActivity callbacksActivity = null;    // the activity displayChangeListener was registered with
+
+        // display geometry used for banner layout, recomputed after configuration changes (UI thread only)
+        final DisplayGeometry displayGeometry = new DisplayGeometry();
+
+        // init() settings
+        int coronaListener = CoronaLua.REFNIL;
+        boolean testMode = false;
+        boolean autoLoadDefault = false;
+        long adExpirationMs = 0;                // how long a loaded ad stays valid if not shown (0 = unlimited)
+        int maxLoadedAds = 0;                   // how many loaded-but-unshown ads are kept (0 = unlimited)
+        int maxEventsPerFrame = DEFAULT_MAX_EVENTS_PER_FRAME;
+        volatile int eventMask = ALL_EVENTS;    // phases sent to Lua when a placement doesn't subscribe with its own mask
+
+        // SDK delegates (a single banner delegate is shared by all banner instances)
+        CoronaSADelegate interstitialDelegate = null;
+        CoronaSADelegate videoDelegate = null;
+        CoronaSADelegate bannerDelegate = null;
+
+        // loaded placements keyed by the numeric placement id (lock-free reads from the Lua and UI threads)
+        final PlacementRegistry<CoronaAdInstance> placements = new PlacementRegistry<>();
+        final AtomicInteger removedPlacements = new AtomicInteger();
+        final AtomicInteger pendingRemovals = new AtomicInteger();  // REMOVED instances compactRegistry() hasn't dropped
+
+        // listeners passed to load(), by placement id. events of these placements skip the init() listener (Lua thread)
+        final SparseIntArray placementListeners = new SparseIntArray();
+        final SparseArray<CoronaAdInstance> placementListenerOwners = new SparseArray<>();    // the instance that set it
+
+        // placement groups registered with registerGroup(), keyed by name (Lua thread only)
+        final Map<String, PlacementGroup> placementGroups = new HashMap<>();
+
+        // parsed option values, reused between calls (Lua thread only)
+        final LuaOptionSchema.Values initOptionValues = INIT_OPTIONS.newValues();
+        final LuaOptionSchema.Values loadOptionValues = LOAD_OPTIONS.newValues();
+        final LuaOptionSchema.Values loadSpecValues = LOAD_SPEC.newValues();
+        final LuaOptionSchema.Values showOptionValues = SHOW_OPTIONS.newValues();
+        final LuaOptionSchema.Values showSpecValues = SHOW_SPEC.newValues();
+
+        // SDK readiness. until the SDK is initialized, UI thread work from Lua functions waits in sdkPendingTasks
+        // and is run in call order once it is (guarded by sdkPendingTasks)
+        final List<Runnable> sdkPendingTasks = new ArrayList<>();
+        boolean sdkReady = false;
+
+        // deferSdkInit (Lua thread). the SDK is initialized once main.lua has run, which onStarted() reports
+        boolean started = false;
+        boolean sdkInitDeferred = false;        // waiting for onStarted()
+        long initStartedAt = 0;                 // System.nanoTime() of the init() call
+
+        // startup timing (System.nanoTime() durations, 0 until measured)
+        volatile long initCallNanos = 0;        // time spent in init() on the Lua thread
+        volatile long sdkInitNanos = 0;         // time spent initializing the SDK
+        volatile long initToReadyNanos = 0;     // from the init() call until the SDK was ready
+        volatile int replayedCalls = 0;         // calls queued until the SDK was ready
+
+        // runtime suspension (UI thread only). loads are held back and visible banners paused until the runtime resumes
+        boolean suspended = false;
+        final DeferredLoadQueue deferredLoads = new DeferredLoadQueue();
+        final List<CoronaAdInstance> pausedBanners = new ArrayList<>();
+
+        // banner views of this runtime: reusable views, and the overlay container they stay attached to (UI thread only)
+        final BannerViewPool bannerViewPool = new BannerViewPool(MAX_POOLED_BANNER_VIEWS);
+        final BannerContainer bannerContainer = new BannerContainer();
+
+        // events waiting to be delivered to Lua (drained once per frame by a single runtime task)
+        // the pending queue and the free list are intrusive lists of pooled event records guarded by eventLock
+        private final Object eventLock = new Object();
+        private CoronaAdEvent pendingEventsHead = null;
+        private CoronaAdEvent pendingEventsTail = null;
+        private CoronaAdEvent freeEvents = null;
+        private int freeEventCount = 0;
+        private final AtomicBoolean luaEventDeliveryScheduled = new AtomicBoolean(false);
+
+        RuntimeContext(LuaState luaState) {
+            this.luaState = luaState;
+            this.dispatcher = new CoronaRuntimeTaskDispatcher(luaState);
+        }
+
+        void queueLuaEvent(String phase, String type, String placementId, int listenerKey, String response) {
+            queueLuaEvent(phase, type, placementId, listenerKey, response, null);
+        }
+
+        // release the load() listener of a placement that left the registry once the events queued before are delivered
+        void queueListenerRelease(CoronaAdInstance adInstance) {
+            queueLuaEvent(null, null, null, adInstance.placementId, null, adInstance);
+        }
+
+        private void queueLuaEvent(String phase, String type, String placementId, int listenerKey, String response,
+                                   CoronaAdInstance released) {
+            if (exiting) {
+                return;
+            }
+
+            long queuedAt = System.nanoTime();
+
+            synchronized (eventLock) {
+                CoronaAdEvent event = freeEvents;
+                if (event != null) {
+                    freeEvents = event.next;
+                    freeEventCount--;
+                    event.next = null;
+                } else {
+                    event = new CoronaAdEvent();
+                }
+
+                event.phase = phase;
+                event.type = type;
+                event.placementId = placementId;
+                event.response = response;
+                event.listenerKey = listenerKey;
+                event.queuedAt = queuedAt;
+                event.released = released;
+
+                if (pendingEventsTail == null) {
+                    pendingEventsHead = event;
+                } else {
+                    pendingEventsTail.next = event;
+                }
+                pendingEventsTail = event;
+            }
+
+            scheduleLuaEventDelivery();
+        }
+
+        // remove the oldest pending event (null when the queue is empty)
+        private CoronaAdEvent pollPendingEvent() {
+            synchronized (eventLock) {
+                CoronaAdEvent event = pendingEventsHead;
+                if (event != null) {
+                    pendingEventsHead = event.next;
+                    if (pendingEventsHead == null) {
+                        pendingEventsTail = null;
+                    }
+                    event.next = null;
+                }
+
+                return event;
+            }
+        }
+
+        // return a delivered event to the pool
+        private void recycleEvent(CoronaAdEvent event) {
+            event.reset();
+
+            synchronized (eventLock) {
+                if (freeEventCount < MAX_POOLED_EVENTS) {
+                    event.next = freeEvents;
+                    freeEvents = event;
+                    freeEventCount++;
+                }
+            }
+        }
+
+        private boolean hasPendingEvents() {
+            synchronized (eventLock) {
+                return pendingEventsHead != null;
+            }
+        }
+
+        // drop undelivered events and the pool
+        void clearPendingEvents() {
+            synchronized (eventLock) {
+                pendingEventsHead = null;
+                pendingEventsTail = null;
+                freeEvents = null;
+                freeEventCount = 0;
+            }
+        }
+
+        // send the delivery task unless one is already waiting for the next frame
+        private void scheduleLuaEventDelivery() {
+            if (!exiting && luaEventDeliveryScheduled.compareAndSet(false, true)) {
+                dispatcher.send(luaEventDeliveryTask);
+            }
+        }
+
+        // drains up to maxEventsPerFrame queued events, the remainder is delivered on the following frame(s)
+        private final CoronaRuntimeTask luaEventDeliveryTask = new CoronaRuntimeTask() {
+            public void executeUsing(CoronaRuntime runtime) {
+                LuaState L = runtime.getLuaState();
+                int delivered = 0;
+
+                while (delivered < maxEventsPerFrame) {
+                    CoronaAdEvent event = pollPendingEvent();
+                    if (event == null) {
+                        break;
+                    }
+
+                    if (event.phase == null) {
+                        // queued by unregister(). a listener set by a later load() of the placement is kept
+                        if (placementListenerOwners.get(event.listenerKey) == event.released) {
+                            releasePlacementListener(RuntimeContext.this, L, event.listenerKey);
+                        }
+                    } else {
+                        eventQueueLatency.record(System.nanoTime() - event.queuedAt);
+
+                        long traceStart = trace.begin();
+                        pushLuaEvent(RuntimeContext.this, L, event);
+                        trace.end(TraceBuffer.CATEGORY_EVENT, event.phase, traceStart, event.placementId);
+                    }
+
+                    recycleEvent(event);
+                    delivered++;
+                }
+
+                // clear the flag before checking the queue so events offered in between are never stranded
+                luaEventDeliveryScheduled.set(false);
+
+                if (hasPendingEvents()) {
+                    scheduleLuaEventDelivery();
+                }
+            }
+        };
+
+        // the display changed: recompute the geometry and move visible banners in place (UI thread)
+        final Runnable repositionBannersTask = new Runnable() {
+            public void run() {
+                final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+                if ((coronaActivity == null) || exiting) {
+                    return;
+                }
+
+                CoronaAdInstance adInstance;
+                for (int i = 0; (adInstance = placements.valueAt(i)) != null; i++) {
+                    if ((adInstance.state.get() == STATE_SHOWING) && (adInstance.adInstance instanceof AdProvider.Banner)) {
+                        placeBanner(coronaActivity, adInstance);
+                    }
+                }
+            }
+        };
+
+        // invalidates the cached display geometry on rotation, resize, density changes, etc.
+        // registered with callbacksActivity by init() and unregistered when the runtime exits
+        final ComponentCallbacks displayChangeListener = new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                displayGeometry.invalidate();
+
+                // the Corona view is resized after this callback, so reposition on the next pass of the UI loop
+                uiHandler.post(repositionBannersTask);
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        };
+
+        // periodically expire loaded ads older than adExpirationMs (UI thread)
+        final Runnable adCacheSweepTask = new Runnable() {
+            public void run() {
+                if ((adExpirationMs <= 0) || exiting) {
+                    return;
+                }
+
+                long now = SystemClock.elapsedRealtime();
+                CoronaAdInstance adInstance;
+                for (int i = 0; (adInstance = placements.valueAt(i)) != null; i++) {
+                    if (adInstance.isExpired(now)) {
+                        expireAd(adInstance, true);
+                    }
+                }
+
+                uiHandler.postDelayed(this, Math.min(adExpirationMs, MAX_CACHE_SWEEP_INTERVAL_MS));
+            }
+        };
+    }
+
+    // display values needed to lay out banners. computed once and invalidated on configuration changes
+    // NOTE: only safe to use on the UI thread!
+    private class DisplayGeometry {
+        boolean valid = false;
+        double density;
+        int orientedHeight;
+        double yRatio;              // used to calculate Corona -> device coordinate ratio
+
+        void invalidate() {
+            valid = false;
+        }
+
+        DisplayGeometry update(CoronaActivity coronaActivity) {
+            if (valid) {
+                return this;
+            }
+
+            // get device scale
+            density = coronaActivity.getApplicationContext().getResources().getDisplayMetrics().density;
+
+            Display display = coronaActivity.getWindowManager().getDefaultDisplay();
+            int orientation = coronaActivity.getResources().getConfiguration().orientation;
+
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR2) {
+                if (orientation == ORIENTATION_PORTRAIT) {
+                    orientedHeight = display.getHeight();
+                } else {
+                    orientedHeight = display.getWidth();
+                }
+            } else {
+                Point size = new Point();
+                display.getSize(size);
+
+                if (orientation == ORIENTATION_PORTRAIT) {
+                    orientedHeight = size.y;
+                } else {
+                    orientedHeight = size.x;
+                }
+            }
+
+            // calculate the Corona->device coordinate ratio.
+            // we don't use display.contentScaleY here as there are cases where it's difficult to get the proper values to use
+            // especially on Android. uses the same formula for iOS and Android for the sake of consistency.
+            Point point1 = coronaActivity.convertCoronaPointToAndroidPoint(0, 0);
+            Point point2 = coronaActivity.convertCoronaPointToAndroidPoint(1000, 1000);
+            yRatio = (double) (point2.y - point1.y) / 1000.0;
 
-        CoronaAdInstance(Object ad, String adType) {
-            this(ad, adType, 0);
+            valid = true;
+            return this;
         }
+    }
+
+    // state is shared by the Lua and UI threads and only changes through CAS transitions:
+    // idle -> loading -> loaded -> showing -> closed/failed (and back to loading on reload)
+    // loaded ads that are never shown may also move to expired (ttl or cache size limit)
+    private class CoronaAdInstance {
+        final RuntimeContext context;
+        final int placementId;
+        final String placementIdString;
+        final String adType;
+        final AtomicInteger state = new AtomicInteger(STATE_IDLE);
+        Object adInstance;      // UI thread only
+        float height;           // UI thread only
+        int bannerPoolKey;      // UI thread only
+        String yAlign;          // UI thread only, last banner position passed to show()
+        double yOffset;         // UI thread only
+
+        // load options, set before every load is posted and kept for autoload
+        String bannerSize = BANNER_50;
+        boolean bannerTransparency = false;
+        volatile boolean autoLoad = false;
+        volatile int eventMask = ALL_EVENTS;
+
+        // cache bookkeeping (elapsed realtime)
+        volatile long loadedAt = 0;
+        volatile long lastUsedAt = 0;
+
+        // statistics and the retry governor, shared by the instances of a placement id
+        // (System.nanoTime() of the last load() and show() requests)
+        final PlacementStats stats;
+        volatile long loadStartedAt = 0;
+        volatile long showStartedAt = 0;
+
+        // reloads the placement after it was closed or failed to load
+        final Runnable autoLoadTask = new Runnable() {
+            public void run() {
+                autoLoad(CoronaAdInstance.this);
+            }
+        };
+
+        // drops the ad from the cache once its ttl has passed
+        final Runnable expireTask = new Runnable() {
+            public void run() {
+                expireAd(CoronaAdInstance.this, true);
+            }
+        };
 
-        CoronaAdInstance(Object ad, String adType, float height) {
-            this.adInstance = ad;
+        // fail a load or show the SDK never answered
+        final Runnable loadTimeoutTask = new Runnable() {
+            public void run() {
+                onLoadTimeout();
+            }
+        };
+
+        final Runnable showTimeoutTask = new Runnable() {
+            public void run() {
+                onShowTimeout();
+            }
+        };
+
+        CoronaAdInstance(RuntimeContext context, int placementId, String adType) {
+            this.context = context;
+            this.placementId = placementId;
+            this.placementIdString = placementIdString(placementId);
             this.adType = adType;
-            this.height = height;
+            this.stats = statsFor(placementId, adType);
+        }
+
+        boolean transition(int from, int to) {
+            return state.compareAndSet(from, to);
+        }
+
+        boolean isLoaded() {
+            return isLoaded(state.get());
+        }
+
+        // banners stay loaded while they are on screen
+        boolean isLoaded(int current) {
+            return (current == STATE_LOADED) || ((current == STATE_SHOWING) && adType.equals(TYPE_BANNER));
+        }
+
+        // called when the placement moves to the loading state (any thread)
+        void onLoadStarted() {
+            loadStartedAt = System.nanoTime();
+            stats.recordLoad();
+            armLoadTimeout();
+        }
+
+        // (re)start the load timeout, also when a load held back by a suspension is finally sent (any thread)
+        void armLoadTimeout() {
+            uiHandler.removeCallbacks(loadTimeoutTask);
+            uiHandler.postDelayed(loadTimeoutTask, LOAD_TIMEOUT_MS);
+        }
+
+        // called when the placement moves to the showing state (any thread). banners have no show callback
+        void onShowStarted() {
+            if (!adType.equals(TYPE_BANNER)) {
+                uiHandler.removeCallbacks(showTimeoutTask);
+                uiHandler.postDelayed(showTimeoutTask, SHOW_TIMEOUT_MS);
+            }
+        }
+
+        // stop the timeouts, when the SDK answered or the placement is dropped (UI thread)
+        void cancelTimeouts() {
+            uiHandler.removeCallbacks(loadTimeoutTask);
+            uiHandler.removeCallbacks(showTimeoutTask);
+        }
+
+        // the load is failed like the SDK would fail it, so it feeds the backoff (UI thread)
+        void onLoadTimeout() {
+            if (context.exiting) {
+                return;
+            }
+
+            // loads held back while the runtime is suspended haven't been sent yet
+            if (context.suspended) {
+                uiHandler.postDelayed(loadTimeoutTask, LOAD_TIMEOUT_MS);
+                return;
+            }
+
+            if (transition(STATE_LOADING, STATE_FAILED)) {
+                PluginLog.warning("placementId '%s' load timed out", placementIdString);
+                stats.recordLoadFailure();
+                if ((eventMask & EVENT_FAILED) != 0) {
+                    dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_LOADFAILED);
+                }
+                afterLoadFailed(false);
+            }
+        }
+
+        // the placement can be loaded again, a late adClosed is ignored (UI thread)
+        void onShowTimeout() {
+            if (!context.exiting && transition(STATE_SHOWING, STATE_FAILED)) {
+                PluginLog.warning("placementId '%s' show timed out", placementIdString);
+                stats.recordShowFailure();
+                if ((eventMask & EVENT_FAILED) != 0) {
+                    dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_SHOWFAILED);
+                }
+            }
+        }
+
+        // back off after a failed load, then retry it (autoload) or drop the placement (UI thread)
+        private void afterLoadFailed(boolean noFill) {
+            long retryDelay = onLoadFailed(noFill);
+            if (autoLoad) {
+                uiHandler.postDelayed(autoLoadTask, retryDelay);
+            } else if (!adType.equals(TYPE_BANNER)) {
+                unregister(this, STATE_FAILED);     // the backoff stays in the placement stats
+            }
+        }
+
+        // record a failed load and return how long to wait before the next one
+        long onLoadFailed(boolean noFill) {
+            long delay;
+
+            stats.consecutiveFailures++;
+            stats.consecutiveNoFills = noFill ? (stats.consecutiveNoFills + 1) : 0;
+
+            if (stats.consecutiveNoFills >= NO_FILL_CIRCUIT_THRESHOLD) {
+                // open the circuit, the next load after the cool-off starts the backoff over
+                delay = NO_FILL_COOL_OFF_MS;
+                stats.consecutiveFailures = 0;
+                stats.consecutiveNoFills = 0;
+            } else {
+                // exponential backoff with jitter in [backoff / 2, backoff]
+                long backoff = LOAD_BACKOFF_BASE_MS << Math.min(stats.consecutiveFailures - 1, 16);
+                backoff = Math.min(backoff, LOAD_BACKOFF_MAX_MS);
+                delay = (backoff / 2) + (long) (random() * (backoff / 2));
+            }
+
+            stats.nextLoadAllowedAt = SystemClock.elapsedRealtime() + delay;
+            return delay;
+        }
+
+        // true while the retry governor holds back loads
+        boolean isLoadSuppressed(long now) {
+            return now < stats.nextLoadAllowedAt;
+        }
+
+        // only ads waiting to be shown expire
+        boolean isExpired(long now) {
+            return (context.adExpirationMs > 0) && (state.get() == STATE_LOADED) && ((now - loadedAt) >= context.adExpirationMs);
+        }
+
+        // track the SDK callbacks (called on the UI thread)
+        void onSdkEvent(SAEvent saEvent) {
+            switch (saEvent) {
+                case adLoaded:
+                case adAlreadyLoaded:
+                    uiHandler.removeCallbacks(loadTimeoutTask);
+                    if (transition(STATE_LOADING, STATE_LOADED)) {
+                        if (saEvent == SAEvent.adLoaded) {
+                            stats.recordFill(System.nanoTime() - loadStartedAt);
+                        }
+
+                        loadedAt = lastUsedAt = SystemClock.elapsedRealtime();
+                        stats.consecutiveFailures = 0;
+                        stats.consecutiveNoFills = 0;
+                        stats.nextLoadAllowedAt = 0;
+                        enforceLoadedAdLimit(this);
+                    }
+                    break;
+                case adEmpty:
+                case adFailedToLoad:
+                    if (saEvent == SAEvent.adEmpty) {
+                        stats.recordNoFill();
+                    } else {
+                        stats.recordLoadFailure();
+                    }
+
+                    // a load that timed out has already been failed
+                    uiHandler.removeCallbacks(loadTimeoutTask);
+                    if (transition(STATE_LOADING, STATE_FAILED)) {
+                        afterLoadFailed(saEvent == SAEvent.adEmpty);
+                    }
+                    break;
+                case adShown:
+                    uiHandler.removeCallbacks(showTimeoutTask);
+                    break;
+                case adFailedToShow:
+                    uiHandler.removeCallbacks(showTimeoutTask);
+                    stats.recordShowFailure();
+                    transition(STATE_SHOWING, STATE_FAILED);
+                    break;
+                case adClosed:
+                    // videos send adEnded before adClosed while the player is still on screen,
+                    // so the reload waits for adClosed for all ad types
+                    uiHandler.removeCallbacks(showTimeoutTask);
+                    transition(STATE_SHOWING, STATE_CLOSED);
+                    if (autoLoad) {
+                        uiHandler.post(autoLoadTask);
+                    } else if (!adType.equals(TYPE_BANNER)) {
+                        unregister(this, STATE_CLOSED);
+                    }
+                    break;
+                default:
+                    break;
+            }
         }
 
         // NOTE: only safe to call on the UI thread!
         void dealloc() {
-            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-
-            if ((coronaActivity != null) && (adInstance != null)) {
-                if (adInstance instanceof SABannerAd) {
-                    SABannerAd oldBanner = (SABannerAd) adInstance;
-                    if (oldBanner != null) {
-                        oldBanner.setVisibility(View.INVISIBLE);
-                        oldBanner.setListener(null);
-                        coronaActivity.getOverlayView().removeView(oldBanner);
+            if (adInstance != null) {
+                if (adInstance instanceof AdProvider.Banner) {
+                    // pooled views stay (hidden) in the banner container, the others are detached
+                    AdProvider.Banner oldBanner = (AdProvider.Banner) adInstance;
+                    if (!context.bannerViewPool.release(bannerPoolKey, oldBanner)) {  // also hides the view and clears its listener
+                        context.bannerContainer.detach(oldBanner.getView());
                     }
                 }
 
@@ -184,17 +896,9 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
         // This is because this listener cannot be added to the CoronaEnvironment until after
         // this plugin has been required-in by Lua, which occurs after the onLoaded() event.
         // However, this method will be called when a 2nd Corona activity has been created.
-        if (coronaRuntimeTaskDispatcher == null) {
-            coronaRuntimeTaskDispatcher = new CoronaRuntimeTaskDispatcher(runtime);
-
-            validAdTypes.add(TYPE_BANNER);
-            validAdTypes.add(TYPE_INTERSTITIAL);
-            validAdTypes.add(TYPE_VIDEO);
-
-            validBannerPositions.add(BANNER_ALIGN_TOP);
-            validBannerPositions.add(BANNER_ALIGN_CENTER);
-            validBannerPositions.add(BANNER_ALIGN_BOTTOM);
-        }
+        // The new runtime gets its own state here (or when the plugin is required), whether or not
+        // the previous runtime has finished exiting.
+        contextFor(runtime.getLuaState());
     }
 
     /**
@@ -206,6 +910,13 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
      */
     @Override
     public void onStarted(CoronaRuntime runtime) {
+        RuntimeContext context = findContext(runtime.getLuaState());
+        if (context != null) {
+            context.started = true;
+            if (context.sdkInitDeferred) {
+                postDeferredSdkInit(context);
+            }
+        }
     }
 
     /**
@@ -219,6 +930,33 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
      */
     @Override
     public void onSuspended(CoronaRuntime runtime) {
+        final RuntimeContext context = findContext(runtime.getLuaState());
+        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+        if ((context != null) && (coronaActivity != null)) {
+            Runnable runnableActivity = new Runnable() {
+                public void run() {
+                    if (context.suspended) {
+                        return;
+                    }
+                    context.suspended = true;
+
+                    // nobody can see banners now, stop them until the runtime resumes
+                    CoronaAdInstance adInstance;
+                    for (int i = 0; (adInstance = context.placements.valueAt(i)) != null; i++) {
+                        if ((adInstance.state.get() == STATE_SHOWING) && (adInstance.adInstance instanceof AdProvider.Banner)) {
+                            ((AdProvider.Banner) adInstance.adInstance).pause();
+                            context.pausedBanners.add(adInstance);
+                        }
+                    }
+
+                    // the cache sweep runs again on resume
+                    uiHandler.removeCallbacks(context.adCacheSweepTask);
+                }
+            };
+
+            coronaActivity.runOnUiThread(runnableActivity);
+        }
     }
 
     /**
@@ -230,6 +968,36 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
      */
     @Override
     public void onResumed(CoronaRuntime runtime) {
+        final RuntimeContext context = findContext(runtime.getLuaState());
+        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+        if ((context != null) && (coronaActivity != null)) {
+            Runnable runnableActivity = new Runnable() {
+                public void run() {
+                    if (!context.suspended) {
+                        return;
+                    }
+                    context.suspended = false;
+
+                    // restart the banners that are still on screen
+                    for (CoronaAdInstance adInstance : context.pausedBanners) {
+                        if ((adInstance.state.get() == STATE_SHOWING) && (adInstance.adInstance instanceof AdProvider.Banner)) {
+                            ((AdProvider.Banner) adInstance.adInstance).resume();
+                        }
+                    }
+                    context.pausedBanners.clear();
+
+                    // expire what expired while suspended (the sweep reschedules itself)
+                    if (context.adExpirationMs > 0) {
+                        uiHandler.post(context.adCacheSweepTask);
+                    }
+
+                    context.deferredLoads.runAll();
+                }
+            };
+
+            coronaActivity.runOnUiThread(runnableActivity);
+        }
     }
 
     /**
@@ -245,116 +1013,610 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
      */
     @Override
     public void onExiting(final CoronaRuntime runtime) {
-        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+        // detach the state right away: from now on the runtime's events are dropped, and a runtime
+        // started while this one is still exiting can neither see nor clear it
+        final RuntimeContext context = removeContext(runtime.getLuaState());
+        if (context == null) {
+            return;
+        }
 
-        if (coronaActivity != null) {
-            Runnable runnableActivity = new Runnable() {
-                public void run() {
-                    SAInterstitialAd.setListener(null);
-                    SAVideoAd.setListener(null);
-
-                    // deallocate adInstance objects so garbage collection can be done
-                    for (String key : superAwesomeObjects.keySet()) {
-                        Object object = superAwesomeObjects.get(key);
-                        if (object instanceof CoronaAdInstance) {
-                            CoronaAdInstance adInstance = (CoronaAdInstance) object;
-                            adInstance.dealloc();
-                        }
+        // the teardown doesn't depend on the current activity, which may be gone during a restart:
+        // banner views are detached from the overlay they were attached to
+        uiHandler.post(new Runnable() {
+            public void run() {
+                // the SDK calls the delegates of the runtime that initialized it last, which may already
+                // be a runtime that started while this one was exiting
+                synchronized (sdkLock) {
+                    if (sdkContext == context) {
+                        adProvider.setInterstitialListener(null);
+                        adProvider.setVideoListener(null);
+                        sdkContext = null;
                     }
+                }
 
-                    // Remove the Lua listener reference.
-                    CoronaLua.deleteRef(runtime.getLuaState(), coronaListener);
-                    coronaListener = CoronaLua.REFNIL;
-
-                    // clear lists and remove object references
-                    validAdTypes.clear();
-                    validBannerPositions.clear();
-                    superAwesomeObjects.clear();
-
-                    coronaRuntimeTaskDispatcher = null;
+                if (context.callbacksActivity != null) {
+                    context.callbacksActivity.unregisterComponentCallbacks(context.displayChangeListener);
+                    context.callbacksActivity = null;
+                }
+                uiHandler.removeCallbacks(context.repositionBannersTask);
+                uiHandler.removeCallbacks(context.adCacheSweepTask);
+
+                // deallocate adInstance objects so garbage collection can be done
+                for (CoronaAdInstance adInstance : context.placements.values()) {
+                    uiHandler.removeCallbacks(adInstance.autoLoadTask);
+                    uiHandler.removeCallbacks(adInstance.expireTask);
+                    adInstance.cancelTimeouts();
+                    adInstance.state.set(STATE_CLOSED);
+                    adInstance.dealloc();
                 }
-            };
 
-            coronaActivity.runOnUiThread(runnableActivity);
-        }
+                // Remove the Lua listener references.
+                CoronaLua.deleteRef(context.luaState, context.coronaListener);
+                context.coronaListener = CoronaLua.REFNIL;
+                for (int i = 0; i < context.placementListeners.size(); i++) {
+                    CoronaLua.deleteRef(context.luaState, context.placementListeners.valueAt(i));
+                }
+                context.placementListeners.clear();
+                context.placementListenerOwners.clear();
+
+                // clear lists and remove object references
+                context.placements.clear();
+                context.placementGroups.clear();
+                synchronized (context.sdkPendingTasks) {
+                    context.sdkPendingTasks.clear();
+                    context.sdkReady = false;
+                }
+                context.deferredLoads.clear();
+                context.pausedBanners.clear();
+                context.bannerViewPool.clear();
+                context.bannerContainer.clear();
+                context.clearPendingEvents();
+
+                // process wide state is reset once no runtime uses it anymore
+                if (!hasRuntimeContexts()) {
+                    placementStats.clear();
+                    interstitialStats.reset();
+                    videoStats.reset();
+                    bannerStats.reset();
+                    eventQueueLatency.reset();
+                    trace = TraceBuffer.DISABLED;
+                    PluginLog.setLevel(PluginLog.DEFAULT_LEVEL);
+                    synchronized (placementIdStrings) {
+                        placementIdStrings.clear();
+                    }
+                }
+            }
+        });
     }
 
     // --------------------------------------------------------------------------
     // helper functions
     // --------------------------------------------------------------------------
 
-    // log message to console
-    private void logMsg(String msgType, String errorMsg) {
-        String functionID = functionSignature;
-        if (!functionID.isEmpty()) {
-            functionID += ", ";
+    // the state of the runtime a Lua state belongs to, created the first time the runtime uses the plugin
+    private RuntimeContext contextFor(LuaState L) {
+        synchronized (runtimeContexts) {
+            RuntimeContext context = findContext(L);
+            if (context == null) {
+                context = new RuntimeContext(L);
+                runtimeContexts.add(context);
+            }
+
+            return context;
         }
+    }
+
+    // the state of a runtime, or null if the runtime never used the plugin (or has exited)
+    private static RuntimeContext findContext(LuaState L) {
+        synchronized (runtimeContexts) {
+            for (RuntimeContext context : runtimeContexts) {
+                if (context.luaState == L) {
+                    return context;
+                }
+            }
 
-        Log.i(CORONA_TAG, msgType + functionID + errorMsg);
+            return null;
+        }
     }
 
-    // return true if SDK is properly initialized
-    private boolean isSDKInitialized() {
-        if (coronaListener == CoronaLua.REFNIL) {
-            logMsg(ERROR_MSG, "superawesome.init() must be called before calling other API functions");
-            return false;
+    // detach the state of an exiting runtime. it stops queuing events, its cleanup is left to the caller
+    private static RuntimeContext removeContext(LuaState L) {
+        synchronized (runtimeContexts) {
+            RuntimeContext context = findContext(L);
+            if (context != null) {
+                context.exiting = true;
+                runtimeContexts.remove(context);
+            }
+
+            return context;
         }
+    }
 
-        return true;
+    private static boolean hasRuntimeContexts() {
+        synchronized (runtimeContexts) {
+            return !runtimeContexts.isEmpty();
+        }
     }
 
-    // dispatch a Lua event to our callback (dynamic handling of properties through map)
-    private void dispatchLuaEvent(final Map<String, Object> event) {
-        if (coronaRuntimeTaskDispatcher != null) {
-            coronaRuntimeTaskDispatcher.send(new CoronaRuntimeTask() {
-                public void executeUsing(CoronaRuntime runtime) {
-                    try {
-                        LuaState L = runtime.getLuaState();
-                        CoronaLua.newEvent(L, EVENT_NAME);
-                        boolean hasErrorKey = false;
+    // parse a Lua placement id string, returns INVALID_PLACEMENT_ID (and logs an error) when it isn't numeric
+    private int parsePlacementId(String placementId) {
+        int pid = INVALID_PLACEMENT_ID;
+
+        if (placementId != null) {
+            try {
+                pid = Integer.parseInt(placementId);
+            } catch (NumberFormatException ignored) {
+            }
+        }
 
-                        // add event parameters from map
-                        for (String key : event.keySet()) {
-                            CoronaLua.pushValue(L, event.get(key));           // push value
-                            L.setField(-2, key);                              // push key
+        if (pid < 0) {
+            PluginLog.error("placementId '%s' invalid", placementId);
+            return INVALID_PLACEMENT_ID;
+        }
 
-                            if (!hasErrorKey) {
-                                hasErrorKey = key.equals(CoronaLuaEvent.ISERROR_KEY);
-                            }
-                        }
+        return pid;
+    }
 
-                        // add error key if not in map
-                        if (!hasErrorKey) {
-                            L.pushBoolean(false);
-                            L.setField(-2, CoronaLuaEvent.ISERROR_KEY);
-                        }
+    // parse a comma separated list of phases (the 'events' option) into EVENT_* bits
+    // returns -1 (and logs an error) when a phase is unknown. an empty list subscribes to nothing
+    private static int parseEventMask(String events) {
+        int mask = 0;
 
-                        // add provider
-                        L.pushString(PROVIDER_NAME);
-                        L.setField(-2, CoronaLuaEvent.PROVIDER_KEY);
+        for (String phase : events.split(",")) {
+            phase = phase.trim();
+            if (phase.isEmpty()) {
+                continue;
+            }
 
-                        CoronaLua.dispatchEvent(L, coronaListener, 0);
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
+            int bit = 0;
+            for (int i = 0; i < SUBSCRIBABLE_PHASES.length; i++) {
+                if (SUBSCRIBABLE_PHASES[i].equals(phase)) {
+                    bit = 1 << i;
+                    break;
                 }
-            });
+            }
+
+            if (bit == 0) {
+                PluginLog.error("options.events phase '%s' invalid", phase);
+                return -1;
+            }
+            mask |= bit;
         }
+
+        return mask;
     }
 
+    // start loading a placement that has been moved to the loading state (UI thread)
+    private void loadAd(CoronaActivity coronaActivity, CoronaAdInstance adInstance) {
+        RuntimeContext context = adInstance.context;
+        int pid = adInstance.placementId;
+
+        if (adInstance.adType.equals(TYPE_INTERSTITIAL)) {
+            adProvider.loadInterstitial(pid, context.testMode, coronaActivity);
+        } else if (adInstance.adType.equals(TYPE_VIDEO)) {
+            adProvider.loadVideo(pid, context.testMode, coronaActivity);
+        } else if (adInstance.adType.equals(TYPE_BANNER)) {
+            // release the previous banner view (if any)
+            adInstance.dealloc();
+
+            int bannerHeight = 50;
+
+            if (adInstance.bannerSize.equals(BANNER_50)) {
+                bannerHeight = 50;
+            } else if (adInstance.bannerSize.equals(BANNER_90)) {
+                bannerHeight = 90;
+            } else if (adInstance.bannerSize.equals(BANNER_250)) {
+                bannerHeight = 250;
+            } else {
+                PluginLog.warning("options.bannerSize '%s' invalid. Using default BANNER_50", adInstance.bannerSize);
+            }
 
+            // reuse a pooled banner view of the same size and transparency, or create a new one
+            int poolKey = BannerViewPool.key(bannerHeight, adInstance.bannerTransparency);
+            AdProvider.Banner banner = context.bannerViewPool.acquire(poolKey, coronaActivity);
 
+            if (banner == null) {
+                banner = adProvider.createBanner(coronaActivity, adInstance.bannerTransparency);
+            }
 
-    // -------------------------------------------------------
-    // plugin implementation
-    // -------------------------------------------------------
+            banner.setListener(context.bannerDelegate);
+            banner.getView().setVisibility(View.INVISIBLE);
 
-    /**
-     * <p>
-     * Note that a new LuaLoader instance will not be created for every CoronaActivity instance.
-     * That is, only one instance of this class will be created for the lifetime of the application process.
-     * This gives a plugin the option to do operations in the background while the CoronaActivity is destroyed.
-     */
+            adInstance.adInstance = banner;
+            adInstance.height = bannerHeight;
+            adInstance.bannerPoolKey = poolKey;
+
+            // attach it (hidden) now so show() only has to make it visible
+            placeBanner(coronaActivity, adInstance);
+
+            banner.load(pid, context.testMode);
+        }
+    }
+
+    // start a load claimed by prepareLoad(), or defer it while the runtime is suspended (UI thread)
+    private void requestLoad(CoronaActivity coronaActivity, final CoronaAdInstance adInstance) {
+        final RuntimeContext context = adInstance.context;
+
+        if (!context.suspended) {
+            loadAd(coronaActivity, adInstance);
+            return;
+        }
+
+        context.deferredLoads.offer(adInstance, DeferredLoadQueue.PRIORITY_REQUESTED, new Runnable() {
+            public void run() {
+                final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+                // skip placements that were hidden or replaced in the meantime
+                if ((coronaActivity != null) && (context.placements.get(adInstance.placementId) == adInstance)
+                        && (adInstance.state.get() == STATE_LOADING)) {
+                    adInstance.loadStartedAt = System.nanoTime();   // time spent suspended isn't load latency
+                    adInstance.armLoadTimeout();
+                    loadAd(coronaActivity, adInstance);
+                }
+            }
+        });
+    }
+
+    // reload a closed or failed placement when autoload is enabled (UI thread)
+    private void autoLoad(CoronaAdInstance adInstance) {
+        RuntimeContext context = adInstance.context;
+        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+        // skip placements that were hidden or replaced since the reload was scheduled, and exiting runtimes
+        if ((coronaActivity == null) || context.exiting || !adInstance.autoLoad
+                || (context.placements.get(adInstance.placementId) != adInstance)) {
+            return;
+        }
+
+        // wait for the runtime to resume, the checks below are made again then
+        if (context.suspended) {
+            context.deferredLoads.offer(adInstance, DeferredLoadQueue.PRIORITY_RELOAD, adInstance.autoLoadTask);
+            return;
+        }
+
+        // a load() call may have started a backoff window after this reload was scheduled
+        long now = SystemClock.elapsedRealtime();
+        if (adInstance.isLoadSuppressed(now)) {
+            uiHandler.removeCallbacks(adInstance.autoLoadTask);
+            uiHandler.postDelayed(adInstance.autoLoadTask, adInstance.stats.nextLoadAllowedAt - now);
+            return;
+        }
+
+        int state = adInstance.state.get();
+        if (((state == STATE_CLOSED) || (state == STATE_FAILED) || (state == STATE_EXPIRED)) && adInstance.transition(state, STATE_LOADING)) {
+            adInstance.onLoadStarted();
+            loadAd(coronaActivity, adInstance);
+        }
+    }
+
+    // drop a loaded-but-unshown ad from the cache and release its banner view (UI thread)
+    // expired ads are refreshed by autoload, evicted ones are removed from the registry
+    private void expireAd(CoronaAdInstance adInstance, boolean refresh) {
+        if (!adInstance.transition(STATE_LOADED, STATE_EXPIRED)) {
+            return;
+        }
+
+        adInstance.dealloc();
+        if ((adInstance.eventMask & EVENT_EXPIRED) != 0) {
+            dispatchLuaEvent(adInstance.context, PHASE_EXPIRED, adInstance.adType, adInstance.placementId);
+        }
+
+        if (refresh && adInstance.autoLoad) {
+            uiHandler.post(adInstance.autoLoadTask);
+        } else {
+            unregister(adInstance, STATE_EXPIRED);
+        }
+    }
+
+    // take a placement out of the registry unless a load claimed it in the meantime (any thread, no allocations)
+    // it is only marked REMOVED here, the copy-on-write removal is left to compactRegistry() on the Lua thread
+    private static boolean unregister(CoronaAdInstance adInstance, int from) {
+        if (!adInstance.transition(from, STATE_REMOVED)) {
+            return false;
+        }
+
+        adInstance.context.pendingRemovals.incrementAndGet();
+        adInstance.context.removedPlacements.incrementAndGet();
+        adInstance.context.queueListenerRelease(adInstance);
+        return true;
+    }
+
+    // drop the placements marked REMOVED by unregister() from the registry (Lua thread)
+    private static void compactRegistry(RuntimeContext context) {
+        if (context.pendingRemovals.getAndSet(0) > 0) {
+            context.placements.compact(NOT_REMOVED);
+        }
+    }
+
+    // remove the closed, failed and expired interstitials and videos that won't be reloaded by the plugin,
+    // and the ones already marked REMOVED. their backoff is kept in the placement stats (Lua thread)
+    private static int pruneRegistry(RuntimeContext context) {
+        for (CoronaAdInstance adInstance : context.placements.values()) {
+            int state = adInstance.state.get();
+
+            if (((state == STATE_CLOSED) || (state == STATE_FAILED) || (state == STATE_EXPIRED))
+                    && !adInstance.adType.equals(TYPE_BANNER) && !adInstance.autoLoad) {
+                unregister(adInstance, state);
+            }
+        }
+
+        context.pendingRemovals.set(0);
+        return context.placements.compact(NOT_REMOVED);
+    }
+
+    // evict the least recently used loaded ads above the maxLoadedAds limit (UI thread)
+    private void enforceLoadedAdLimit(CoronaAdInstance justLoaded) {
+        RuntimeContext context = justLoaded.context;
+        if (context.maxLoadedAds <= 0) {
+            return;
+        }
+
+        while (true) {
+            int loadedCount = 0;
+            CoronaAdInstance leastRecentlyUsed = null;
+
+            CoronaAdInstance adInstance;
+            for (int i = 0; (adInstance = context.placements.valueAt(i)) != null; i++) {
+                if (adInstance.state.get() == STATE_LOADED) {
+                    loadedCount++;
+                    if ((adInstance != justLoaded) && ((leastRecentlyUsed == null) || (adInstance.lastUsedAt < leastRecentlyUsed.lastUsedAt))) {
+                        leastRecentlyUsed = adInstance;
+                    }
+                }
+            }
+
+            if ((loadedCount <= context.maxLoadedAds) || (leastRecentlyUsed == null)) {
+                return;
+            }
+
+            expireAd(leastRecentlyUsed, false);
+        }
+    }
+
+    // set the size and position of a banner from its show() options (UI thread)
+    private void layoutBanner(CoronaActivity coronaActivity, CoronaAdInstance adInstance, FrameLayout.LayoutParams params) {
+        View bannerView = ((AdProvider.Banner) adInstance.adInstance).getView();
+        DisplayGeometry geometry = adInstance.context.displayGeometry.update(coronaActivity);
+
+        params.height = (int) (adInstance.height * geometry.density);
+        params.topMargin = 0;
+        params.bottomMargin = 0;
+
+        // set the banner position
+        if (adInstance.yAlign == null) {
+            int orientedHeight = geometry.orientedHeight;
+
+            // convert corona coordinates to device coordinates and set banner position
+            double newBannerY = ceil(adInstance.yOffset * geometry.yRatio);
+
+            // make sure the banner frame is visible.
+            // adjust it if the user has specified 'y' which will render it partially off-screen
+            if (newBannerY >= 0) { // offset from top
+                if (newBannerY + bannerView.getHeight() > orientedHeight) {
+                    PluginLog.warning("Banner y position off screen. Adjusting position.");
+                    params.gravity = Gravity.BOTTOM | Gravity.CENTER;
+                } else {
+                    params.gravity = Gravity.TOP | Gravity.CENTER;
+                    params.topMargin = (int) newBannerY;
+                }
+            } else { // offset from bottom
+                if (orientedHeight - bannerView.getHeight() + newBannerY < 0) {
+                    PluginLog.warning("Banner y position off screen. Adjusting position.");
+                    params.gravity = Gravity.TOP | Gravity.CENTER;
+                } else {
+                    params.gravity = Gravity.BOTTOM | Gravity.CENTER;
+                    params.bottomMargin = Math.abs((int) newBannerY);
+                }
+            }
+        } else {
+            if (adInstance.yAlign.equals(BANNER_ALIGN_TOP)) {
+                params.gravity = Gravity.TOP | Gravity.CENTER;
+            } else if (adInstance.yAlign.equals(BANNER_ALIGN_CENTER)) {
+                params.gravity = Gravity.CENTER;
+            } else if (adInstance.yAlign.equals(BANNER_ALIGN_BOTTOM)) {
+                params.gravity = Gravity.BOTTOM | Gravity.CENTER;
+            }
+        }
+    }
+
+    // attach a banner to the banner container and apply the layout of its position (UI thread)
+    // attached banners only get new layout params, and only when the layout changed
+    private void placeBanner(CoronaActivity coronaActivity, CoronaAdInstance adInstance) {
+        View bannerView = ((AdProvider.Banner) adInstance.adInstance).getView();
+        FrameLayout overlay = coronaActivity.getOverlayView();
+        BannerContainer bannerContainer = adInstance.context.bannerContainer;
+
+        layoutBanner(coronaActivity, adInstance, bannerLayout);
+
+        if (bannerContainer.contains(overlay, bannerView) && (bannerView.getLayoutParams() instanceof FrameLayout.LayoutParams)) {
+            FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) bannerView.getLayoutParams();
+
+            if ((params.gravity != bannerLayout.gravity) || (params.height != bannerLayout.height)
+                    || (params.topMargin != bannerLayout.topMargin) || (params.bottomMargin != bannerLayout.bottomMargin)) {
+                params.gravity = bannerLayout.gravity;
+                params.height = bannerLayout.height;
+                params.topMargin = bannerLayout.topMargin;
+                params.bottomMargin = bannerLayout.bottomMargin;
+                bannerView.setLayoutParams(params);
+            }
+        } else {
+            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                    FrameLayout.LayoutParams.WRAP_CONTENT
+            );
+            params.gravity = bannerLayout.gravity;
+            params.height = bannerLayout.height;
+            params.topMargin = bannerLayout.topMargin;
+            params.bottomMargin = bannerLayout.bottomMargin;
+            bannerContainer.attach(overlay, bannerView, params);
+        }
+    }
+
+    // replace the ad SDK, e.g. with the benchmarks' FakeAdProvider. must be called before superawesome.init()
+    static void setAdProvider(AdProvider provider) {
+        adProvider = provider;
+    }
+
+    // return true if SDK is properly initialized
+    private static boolean isSDKInitialized(RuntimeContext context) {
+        if (context.coronaListener == CoronaLua.REFNIL) {
+            PluginLog.error("superawesome.init() must be called before calling other API functions");
+            return false;
+        }
+
+        return true;
+    }
+
+    // return the stats of a placement, created on its first load (Lua thread)
+    private static PlacementStats statsFor(int placementId, String adType) {
+        PlacementStats stats = placementStats.get(placementId);
+
+        if ((stats == null) || !stats.adType.equals(adType)) {
+            if ((stats == null) && (placementStats.size() >= MAX_PLACEMENT_STATS)) {
+                evictPlacementStats(SystemClock.elapsedRealtime());
+            }
+
+            PlacementStats adTypeStats = adType.equals(TYPE_BANNER) ? bannerStats
+                    : adType.equals(TYPE_VIDEO) ? videoStats : interstitialStats;
+            stats = new PlacementStats(placementIdString(placementId), adType, adTypeStats);
+            placementStats.put(placementId, stats);
+        }
+
+        return stats;
+    }
+
+    // drop the stats and id strings of placements that no runtime has registered. the ones still backing off
+    // are only dropped when that isn't enough to get below the limit (Lua thread)
+    private static void evictPlacementStats(long now) {
+        List<PlacementStats> unregistered = new ArrayList<>();
+        for (PlacementStats stats : placementStats.values()) {
+            if (!isRegistered(Integer.parseInt(stats.placementId))) {
+                unregistered.add(stats);
+            }
+        }
+
+        for (PlacementStats stats : unregistered) {
+            if (now >= stats.nextLoadAllowedAt) {
+                removePlacementStats(stats);
+            }
+        }
+
+        if (placementStats.size() >= MAX_PLACEMENT_STATS) {
+            for (PlacementStats stats : unregistered) {
+                removePlacementStats(stats);
+            }
+        }
+    }
+
+    private static void removePlacementStats(PlacementStats stats) {
+        int placementId = Integer.parseInt(stats.placementId);
+
+        if (placementStats.remove(placementId, stats)) {
+            synchronized (placementIdStrings) {
+                placementIdStrings.delete(placementId);
+            }
+        }
+    }
+
+    // true if a runtime has the placement in its registry
+    private static boolean isRegistered(int placementId) {
+        synchronized (runtimeContexts) {
+            for (RuntimeContext context : runtimeContexts) {
+                CoronaAdInstance adInstance = context.placements.get(placementId);
+                if ((adInstance != null) && (adInstance.state.get() != STATE_REMOVED)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    // return the cached string for a placement id
+    private static String placementIdString(int placementId) {
+        synchronized (placementIdStrings) {
+            String pid = placementIdStrings.get(placementId);
+            if (pid == null) {
+                // ids of placements the plugin never loaded (SDK events) have no stats to be evicted with
+                if (placementIdStrings.size() >= MAX_PLACEMENT_STATS) {
+                    placementIdStrings.clear();
+                }
+
+                pid = Integer.toString(placementId);
+                placementIdStrings.put(placementId, pid);
+            }
+
+            return pid;
+        }
+    }
+
+    // dispatch a Lua event to the callback of a runtime
+    // events are queued and delivered in order by a single runtime task per frame
+    private static void dispatchLuaEvent(RuntimeContext context, String phase, String type, String placementId) {
+        context.queueLuaEvent(phase, type, placementId, INVALID_PLACEMENT_ID, null);
+    }
+
+    // dispatch a Lua event with isError set when a response code is given
+    private static void dispatchLuaEvent(RuntimeContext context, String phase, String type, String placementId, String response) {
+        context.queueLuaEvent(phase, type, placementId, INVALID_PLACEMENT_ID, response);
+    }
+
+    // dispatch a placement event, sent to the listener passed to load() if there is one
+    private static void dispatchLuaEvent(RuntimeContext context, String phase, String type, int placementId) {
+        context.queueLuaEvent(phase, type, placementIdString(placementId), placementId, null);
+    }
+
+    private static void dispatchLuaEvent(RuntimeContext context, String phase, String type, int placementId, String response) {
+        context.queueLuaEvent(phase, type, placementIdString(placementId), placementId, response);
+    }
+
+    // build the Lua event table from the event record and send it to the listener
+    private void pushLuaEvent(RuntimeContext context, LuaState L, CoronaAdEvent event) {
+        try {
+            CoronaLua.newEvent(L, EVENT_NAME);
+
+            L.pushString(event.phase);
+            L.setField(-2, EVENT_PHASE_KEY);
+
+            if (event.type != null) {
+                L.pushString(event.type);
+                L.setField(-2, EVENT_TYPE_KEY);
+            }
+
+            if (event.placementId != null) {
+                L.pushString(event.placementId);
+                L.setField(-2, EVENT_PLACEMENTID_KEY);
+            }
+
+            L.pushBoolean(event.response != null);
+            L.setField(-2, CoronaLuaEvent.ISERROR_KEY);
+
+            if (event.response != null) {
+                L.pushString(event.response);
+                L.setField(-2, CoronaLuaEvent.RESPONSE_KEY);
+            }
+
+            // add provider
+            L.pushString(PROVIDER_NAME);
+            L.setField(-2, CoronaLuaEvent.PROVIDER_KEY);
+
+            // the placement listener is looked up on delivery, so events queued before hide() go to the global one
+            CoronaLua.dispatchEvent(L, context.placementListeners.get(event.listenerKey, context.coronaListener), 0);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // -------------------------------------------------------
+    // plugin implementation
+    // -------------------------------------------------------
+
+    /**
+     * <p>
+     * Note that a new LuaLoader instance will not be created for every CoronaActivity instance.
+     * That is, only one instance of this class will be created for the lifetime of the application process.
+     * This gives a plugin the option to do operations in the background while the CoronaActivity is destroyed.
+     */
     public LuaLoader() {
         // Set up this plugin to listen for Corona runtime events to be received by methods
         // onLoaded(), onStarted(), onSuspended(), onResumed(), and onExiting().
@@ -376,14 +1638,24 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
      */
     @Override
     public int invoke(LuaState L) {
+        // every function of the library works on the state of the runtime requiring it
+        RuntimeContext context = contextFor(L);
+
         // Register this plugin into Lua with the following functions.
         NamedJavaFunction[] luaFunctions = new NamedJavaFunction[]
                 {
-                        new Init(),
-                        new Load(),
-                        new IsLoaded(),
-                        new Show(),
-                        new Hide(),
+                        new Init(context),
+                        new Load(context),
+                        new LoadMany(context),
+                        new IsLoaded(context),
+                        new Show(context),
+                        new ShowMany(context),
+                        new Hide(context),
+                        new HideAll(context),
+                        new RegisterGroup(context),
+                        new GetStats(context),
+                        new GetStatus(context),
+                        new DumpTrace(context),
                 };
 
         String libName = L.toString(1);
@@ -395,6 +1667,12 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
 
     // [Lua] superawesome.init(adListener, [options])
     private class Init implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        Init(RuntimeContext context) {
+            this.context = context;
+        }
+
         // Gets the name of the Lua function as it would appear in the Lua script
         @Override
         public String getName() {
@@ -404,709 +1682,1569 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
         // This method is executed when the Lua function is called
         @Override
         public int invoke(LuaState L) {
-            functionSignature = "superawesome.init(listener [, options)";
+            PluginLog.enter("superawesome.init(listener [, options)");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+            final long initStartedAt = System.nanoTime();
 
             // prevent init from being called twice
-            if (coronaListener != CoronaLua.REFNIL) {
-                logMsg(WARNING_MSG, "init() should only be called once");
+            if (context.coronaListener != CoronaLua.REFNIL) {
+                PluginLog.warning("init() should only be called once");
                 return 0;
             }
 
             // check number of arguments
             int nargs = L.getTop();
             if ((nargs < 1) || (nargs > 2)) {
-                logMsg(ERROR_MSG, "Expected 1 or 2 arguments, got " + nargs);
+                PluginLog.error("Expected 1 or 2 arguments, got %d", nargs);
                 return 0;
             }
 
-            boolean testMode = false;
-
             // Get listener key (required)
             if (CoronaLua.isListener(L, 1, PROVIDER_NAME)) {
-                coronaListener = CoronaLua.newRef(L, 1);
+                context.coronaListener = CoronaLua.newRef(L, 1);
             } else {
-                logMsg(ERROR_MSG, "listener expected, got: " + L.typeName(1));
+                PluginLog.error("listener expected, got: %s", L.typeName(1));
                 return 0;
             }
 
             // check for options table
-            if (!L.isNoneOrNil(2)) {
-                if (L.type(2) == LuaType.TABLE) {
-                    // traverse all options
-                    for (L.pushNil(); L.next(2); L.pop(1)) {
-                        if (L.type(-2) != LuaType.STRING) {
-                            logMsg(ERROR_MSG, "options must be a key/value table");
-                            return 0;
-                        }
+            if (!parseOptions(L, 2, "options", INIT_OPTIONS, context.initOptionValues)) {
+                return 0;
+            }
+
+            LuaOptionSchema.Values options = context.initOptionValues;
+            boolean useTestMode = options.getBoolean(INIT_TEST_MODE, false);
+            boolean useAutoLoad = options.getBoolean(INIT_AUTO_LOAD, false);
+            double expirationSeconds = options.getNumber(INIT_AD_EXPIRATION, 0);
+            int loadedAdLimit = (int) options.getNumber(INIT_MAX_LOADED_ADS, 0);
+            int eventsPerFrame = (int) options.getNumber(INIT_MAX_EVENTS_PER_FRAME, DEFAULT_MAX_EVENTS_PER_FRAME);
+            int traceBufferSize = (int) options.getNumber(INIT_TRACE_BUFFER_SIZE, 0);
+            String logLevelName = options.getString(INIT_LOG_LEVEL, null);
+            int logLevel = (logLevelName == null) ? PluginLog.DEFAULT_LEVEL : PluginLog.parseLevel(logLevelName);
+            String events = options.getString(INIT_EVENTS, null);
+            int subscribedEvents = (events == null) ? ALL_EVENTS : parseEventMask(events);
+
+            if (eventsPerFrame < 1) {
+                PluginLog.error("options.maxEventsPerFrame must be at least 1");
+                return 0;
+            }
+
+            if (traceBufferSize < 0) {
+                PluginLog.error("options.traceBufferSize must be 0 or more");
+                return 0;
+            }
 
-                        String key = L.toString(-2);
+            if (logLevel < 0) {
+                PluginLog.error("options.logLevel '%s' invalid", logLevelName);
+                return 0;
+            }
+            PluginLog.setLevel(logLevel);
 
-                        if (key.equals("testMode")) {
-                            if (L.type(-1) == LuaType.BOOLEAN) {
-                                testMode = L.toBoolean(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.testMode (boolean) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else {
-                            logMsg(ERROR_MSG, "Invalid option '" + key + "'");
-                            return 0;
+            if (subscribedEvents < 0) {
+                return 0;
+            }
+
+            // set the delegates (banners are set on each instance)
+            context.interstitialDelegate = new CoronaSADelegate(context, TYPE_INTERSTITIAL);
+            context.videoDelegate = new CoronaSADelegate(context, TYPE_VIDEO);
+            context.bannerDelegate = new CoronaSADelegate(context, TYPE_BANNER);
+
+            // save setting for future use
+            context.testMode = useTestMode;
+            context.autoLoadDefault = useAutoLoad;
+            context.adExpirationMs = (long) (Math.max(0, expirationSeconds) * 1000);
+            context.maxLoadedAds = Math.max(0, loadedAdLimit);
+
+            if (context.adExpirationMs > 0) {
+                uiHandler.postDelayed(context.adCacheSweepTask, Math.min(context.adExpirationMs, MAX_CACHE_SWEEP_INTERVAL_MS));
+            }
+            context.maxEventsPerFrame = eventsPerFrame;
+            context.eventMask = subscribedEvents;
+            if (traceBufferSize > 0) {
+                trace = new TraceBuffer(traceBufferSize);
+            }
+
+            // keep the banner layout geometry up to date
+            context.callbacksActivity = CoronaEnvironment.getCoronaActivity();
+            if (context.callbacksActivity != null) {
+                context.callbacksActivity.registerComponentCallbacks(context.displayChangeListener);
+            }
+
+            // log the plugin version to device console
+            PluginLog.info(PLUGIN_NAME + ": " + PLUGIN_VERSION + " (SDK: " + PLUGIN_SDK_VERSION + ")");
+
+            // initialize the SDK now, or after main.lua has run (the init event is sent when the SDK is ready)
+            if (options.getBoolean(INIT_DEFER_SDK_INIT, false)) {
+                context.initStartedAt = initStartedAt;
+                if (context.started) {
+                    // main.lua has already run, wait for the current chunk to finish
+                    context.dispatcher.send(new CoronaRuntimeTask() {
+                        public void executeUsing(CoronaRuntime runtime) {
+                            postDeferredSdkInit(context);
                         }
-                    }
+                    });
                 } else {
-                    logMsg(ERROR_MSG, "options (table) expected, got " + L.typeName(2));
+                    context.sdkInitDeferred = true;
+                }
+            } else {
+                initSdk(context, initStartedAt);
+            }
+
+            context.initCallNanos = System.nanoTime() - initStartedAt;
+
+            return 0;
+        }
+    }
+
+    // initialize the SDK of a deferSdkInit runtime on the UI thread, as soon as there is an activity (Lua thread)
+    private void postDeferredSdkInit(final RuntimeContext context) {
+        context.sdkInitDeferred = false;
+
+        uiHandler.post(new Runnable() {
+            public void run() {
+                if (context.exiting) {
+                    return;
+                }
+
+                // the activity may not be created yet, or be replaced
+                if (CoronaEnvironment.getCoronaActivity() == null) {
+                    uiHandler.postDelayed(this, SDK_INIT_RETRY_DELAY_MS);
+                    return;
+                }
+
+                initSdk(context, context.initStartedAt);
+            }
+        });
+    }
+
+    // initialize the SDK, send the init event and run the calls made while waiting for it (Lua or UI thread)
+    private void initSdk(RuntimeContext context, long initStartedAt) {
+        long sdkInitStartedAt = System.nanoTime();
+        synchronized (sdkLock) {
+            // an exiting runtime never takes the SDK over, its teardown may already have run
+            if (context.exiting) {
+                return;
+            }
+
+            adProvider.setInterstitialListener(context.interstitialDelegate);
+            adProvider.setVideoListener(context.videoDelegate);
+            sdkContext = context;
+        }
+        adProvider.init(CoronaEnvironment.getCoronaActivity(), context.testMode);
+        context.sdkInitNanos = System.nanoTime() - sdkInitStartedAt;
+
+        if ((context.eventMask & EVENT_INIT) != 0) {
+            dispatchLuaEvent(context, PHASE_INIT, null, null);
+        }
+
+        // replay queued calls in order. calls queued while replaying are picked up before opening the barrier
+        int replayed = 0;
+        while (true) {
+            Runnable[] tasks;
+            synchronized (context.sdkPendingTasks) {
+                if (context.sdkPendingTasks.isEmpty()) {
+                    context.sdkReady = true;
+                    break;
+                }
+
+                tasks = context.sdkPendingTasks.toArray(new Runnable[0]);
+                context.sdkPendingTasks.clear();
+            }
+
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            replayed += tasks.length;
+        }
+
+        context.replayedCalls = replayed;
+        context.initToReadyNanos = System.nanoTime() - initStartedAt;
+    }
+
+    // run UI thread work for a Lua function, after the SDK is initialized (Lua thread)
+    private static void runWhenSdkReady(RuntimeContext context, CoronaActivity coronaActivity, Runnable task) {
+        synchronized (context.sdkPendingTasks) {
+            if (!context.sdkReady) {
+                context.sdkPendingTasks.add(task);
+                return;
+            }
+        }
+
+        coronaActivity.runOnUiThread(task);
+    }
+
+    // parse an optional options table argument into values. logs and returns false on errors
+    private boolean parseOptions(LuaState L, int index, String tableName, LuaOptionSchema schema, LuaOptionSchema.Values values) {
+        if (L.isNoneOrNil(index)) {
+            values.reset();
+            return true;
+        }
+
+        if (L.type(index) != LuaType.TABLE) {
+            PluginLog.error("%s (table) expected, got: %s", tableName, L.typeName(index));
+            return false;
+        }
+
+        String error = schema.parse(L, index, tableName, values);
+        if (error != null) {
+            PluginLog.error(error);
+            return false;
+        }
+
+        return true;
+    }
+
+    // load() options after parsing
+    private static final class LoadRequest {
+        final String adUnitType;
+        final String placementId;
+        final String bannerSize;
+        final boolean bannerTransparency;
+        final boolean autoLoad;
+        final int eventMask;    // -1 if options.events is invalid
+
+        // explicit arguments (legacy API, load(adUnitType, ...)) take precedence over the options
+        LoadRequest(RuntimeContext context, String adUnitType, String placementId, LuaOptionSchema.Values options) {
+            this.adUnitType = (adUnitType != null) ? adUnitType : options.getString(LOAD_AD_UNIT_TYPE, null);
+            this.placementId = (placementId != null) ? placementId : options.getString(LOAD_PLACEMENT_ID, null);
+            this.bannerSize = options.getString(LOAD_BANNER_SIZE, BANNER_50);
+            this.bannerTransparency = options.getBoolean(LOAD_BANNER_TRANSPARENCY, false);
+            this.autoLoad = options.getBoolean(LOAD_AUTO_LOAD, context.autoLoadDefault);
+
+            String events = options.getString(LOAD_EVENTS, null);
+            this.eventMask = (events != null) ? parseEventMask(events) : context.eventMask;
+        }
+    }
+
+    // check the parts of a load request that don't depend on the state of its placement (Lua thread)
+    // returns the numeric placement id, or INVALID_PLACEMENT_ID (and logs an error) if the request is invalid
+    private int validateLoad(RuntimeContext context, LoadRequest request) {
+        if (!validAdTypes.contains(request.adUnitType)) {
+            PluginLog.error("adUnitType '%s' invalid", request.adUnitType);
+            return INVALID_PLACEMENT_ID;
+        }
+
+        if (request.eventMask < 0) {
+            return INVALID_PLACEMENT_ID;    // already logged by parseEventMask()
+        }
+
+        int pid = parsePlacementId(request.placementId);
+        if (pid == INVALID_PLACEMENT_ID) {
+            return INVALID_PLACEMENT_ID;
+        }
+
+        CoronaAdInstance adInstance = context.placements.get(pid);
+        if ((adInstance != null) && (adInstance.state.get() != STATE_REMOVED) && !adInstance.adType.equals(request.adUnitType)) {
+            PluginLog.error("placementId '%s' is not of type %s", request.placementId, request.adUnitType);
+            return INVALID_PLACEMENT_ID;
+        }
+
+        return pid;
+    }
+
+    // validate a load request and move its placement to the loading state (Lua thread)
+    // returns null if the placement should not be loaded
+    private CoronaAdInstance prepareLoad(RuntimeContext context, LoadRequest request) {
+        int pid = validateLoad(context, request);
+        if (pid == INVALID_PLACEMENT_ID) {
+            return null;
+        }
+
+        // check old instance. a load in flight, or an ad that's already available, is not loaded again
+        // removed instances stay in the registry until compactRegistry() drops them
+        CoronaAdInstance adInstance = context.placements.get(pid);
+        if ((adInstance != null) && (adInstance.state.get() == STATE_REMOVED)) {
+            adInstance = null;
+        }
+
+        if (adInstance != null) {
+            int state = adInstance.state.get();
+
+            if (adInstance.isLoaded(state)) {
+                if ((request.eventMask & EVENT_FAILED) != 0) {
+                    dispatchLuaEvent(context, PHASE_FAILED, adInstance.adType, adInstance.placementId, RESPONSE_ALREADY_LOADED);
+                }
+                return null;
+            }
+
+            if ((state == STATE_LOADING) || (state == STATE_SHOWING)) {
+                PluginLog.warning("placementId '%s' is busy. load() ignored", request.placementId);
+                return null;
+            }
+
+            // recently failed placements wait for their backoff (or no-fill cool-off) to pass
+            if (adInstance.isLoadSuppressed(SystemClock.elapsedRealtime())) {
+                if ((request.eventMask & EVENT_FAILED) != 0) {
+                    dispatchLuaEvent(context, PHASE_FAILED, adInstance.adType, adInstance.placementId, RESPONSE_LOAD_SUPPRESSED);
+                }
+                return null;
+            }
+
+            if (!adInstance.transition(state, STATE_LOADING)) {
+                if (adInstance.state.get() != STATE_REMOVED) {
+                    PluginLog.warning("placementId '%s' is busy. load() ignored", request.placementId);
+                    return null;
+                }
+                adInstance = null;
+            }
+        }
+
+        if (adInstance == null) {
+            // the backoff of a placement outlives its instances (hide() or removal from the registry)
+            PlacementStats stats = placementStats.get(pid);
+            if ((stats != null) && stats.adType.equals(request.adUnitType)
+                    && (SystemClock.elapsedRealtime() < stats.nextLoadAllowedAt)) {
+                if ((request.eventMask & EVENT_FAILED) != 0) {
+                    dispatchLuaEvent(context, PHASE_FAILED, request.adUnitType, pid, RESPONSE_LOAD_SUPPRESSED);
+                }
+                return null;
+            }
+
+            // make room for the new placement, the registry is never pruned while it has room
+            compactRegistry(context);
+            if ((context.placements.size() >= MAX_PLACEMENTS) && (pruneRegistry(context) == 0)) {
+                PluginLog.error("Too many placements (%d). placementId '%s' not loaded", MAX_PLACEMENTS, request.placementId);
+                return null;
+            }
+
+            // the listener of an earlier instance isn't inherited, even if its release is still queued
+            releasePlacementListener(context, context.luaState, pid);
+
+            // create ad info object to hold extra information not available in the SDK
+            adInstance = new CoronaAdInstance(context, pid, request.adUnitType);
+            adInstance.state.set(STATE_LOADING);
+            context.placements.put(pid, adInstance);
+        }
+
+        adInstance.bannerSize = request.bannerSize;
+        adInstance.bannerTransparency = request.bannerTransparency;
+        adInstance.autoLoad = request.autoLoad;
+        adInstance.eventMask = request.eventMask;
+        adInstance.onLoadStarted();
+
+        return adInstance;
+    }
+
+    // show() options after parsing
+    private static final class ShowRequest {
+        final String placementId;
+        final String lockOrientation;
+        final String yAlign;
+        final double yOffset;
+        final boolean useParentalGate;
+        final boolean useSmallClickZone;
+        final boolean showVideoCloseButton;
+        final boolean closeVideoAtEnd;
+
+        ShowRequest(String placementId, LuaOptionSchema.Values options) {
+            this.placementId = (placementId != null) ? placementId : options.getString(SHOW_PLACEMENT_ID, null);
+            this.lockOrientation = options.getString(SHOW_LOCK_ORIENTATION, null);
+            this.yAlign = options.getString(SHOW_Y, options.getString(SHOW_Y_ALIGN, null)); // yAlign is the legacy API
+            this.yOffset = options.getNumber(SHOW_Y, 0);
+            this.useParentalGate = options.getBoolean(SHOW_USE_PARENTAL_GATE, false);
+            this.useSmallClickZone = options.getBoolean(SHOW_USE_SMALL_CLICK_ZONE, false);
+            this.showVideoCloseButton = options.getBoolean(SHOW_VIDEO_CLOSE_BUTTON, true);
+            this.closeVideoAtEnd = options.getBoolean(SHOW_CLOSE_VIDEO_AT_END, false);
+        }
+    }
+
+    // placements competing for the same slot, in priority order. show(name) shows the first one that is ready
+    private static final class PlacementGroup {
+        final String name;
+        final String adUnitType;
+        final int[] placementIds;
+        final LoadRequest[] loadRequests;       // used to load the members that aren't loaded
+
+        PlacementGroup(String name, String adUnitType, int[] placementIds, LoadRequest[] loadRequests) {
+            this.name = name;
+            this.adUnitType = adUnitType;
+            this.placementIds = placementIds;
+            this.loadRequests = loadRequests;
+        }
+    }
+
+    // build a show request from parsed options. logs and returns null if the options are invalid
+    private ShowRequest newShowRequest(String placementId, LuaOptionSchema.Values options) {
+        ShowRequest request = new ShowRequest(placementId, options);
+
+        // validation
+        if (request.yAlign != null) {
+            if (!validBannerPositions.contains(request.yAlign)) {
+                PluginLog.error("y '%s' invalid", request.yAlign);
+                return null;
+            }
+        }
+
+        return request;
+    }
+
+    // validate a show request and claim its placement for showing (Lua thread)
+    // returns null if the placement can't be shown
+    private CoronaAdInstance prepareShow(RuntimeContext context, ShowRequest request) {
+        int pid = parsePlacementId(request.placementId);
+        if (pid == INVALID_PLACEMENT_ID) {
+            return null;
+        }
+
+        CoronaAdInstance adInstance = context.placements.get(pid);
+        if (adInstance == null) {
+            PluginLog.error("placementId '%s' not loaded", request.placementId);
+            return null;
+        }
+
+        // stale ads are dropped instead of shown
+        if (adInstance.isExpired(SystemClock.elapsedRealtime())) {
+            uiHandler.post(adInstance.expireTask);
+            PluginLog.error("placementId '%s' expired", request.placementId);
+            return null;
+        }
+
+        // claim the ad for showing (banners can be shown again to change their position)
+        int state = adInstance.state.get();
+        if (!adInstance.isLoaded(state) || !adInstance.transition(state, STATE_SHOWING)) {
+            PluginLog.error("placementId '%s' not loaded", request.placementId);
+            return null;
+        }
+
+        adInstance.showStartedAt = System.nanoTime();
+        adInstance.onShowStarted();
+
+        return adInstance;
+    }
+
+    // show a placement claimed by prepareShow() (UI thread)
+    private void showAd(CoronaActivity coronaActivity, CoronaAdInstance adInstance, ShowRequest request) {
+        int pid = adInstance.placementId;
+
+        if (adInstance.adType.equals(TYPE_INTERSTITIAL)) {
+            if (!adProvider.hasInterstitial(pid)) {
+                adInstance.transition(STATE_SHOWING, STATE_FAILED);
+                adInstance.stats.recordShowFailure();
+                PluginLog.error("placementId '%s' not loaded", adInstance.placementIdString);
+                return;
+            }
+
+            adProvider.playInterstitial(pid, request.useParentalGate, orientationFor(request.lockOrientation), coronaActivity);
+        } else if (adInstance.adType.equals(TYPE_VIDEO)) {
+            if (!adProvider.hasVideo(pid)) {
+                adInstance.transition(STATE_SHOWING, STATE_FAILED);
+                adInstance.stats.recordShowFailure();
+                PluginLog.error("placementId '%s' not loaded", adInstance.placementIdString);
+                return;
+            }
+
+            adProvider.playVideo(pid, request.useParentalGate, request.showVideoCloseButton, request.useSmallClickZone,
+                    request.closeVideoAtEnd, orientationFor(request.lockOrientation), coronaActivity);
+        } else if (adInstance.adType.equals(TYPE_BANNER)) {
+            AdProvider.Banner banner = (AdProvider.Banner) adInstance.adInstance;
+            if ((banner == null) || !banner.hasAdAvailable()) {
+                adInstance.transition(STATE_SHOWING, STATE_FAILED);
+                adInstance.stats.recordShowFailure();
+                PluginLog.error("placementId '%s' not loaded", adInstance.placementIdString);
+                return;
+            }
+
+            // move the banner to its position (layout params only, it stays attached from load())
+            adInstance.yAlign = request.yAlign;
+            adInstance.yOffset = request.yOffset;
+            placeBanner(coronaActivity, adInstance);
+            adInstance.context.bannerContainer.bringToFront(coronaActivity.getOverlayView());
+
+            // display the banner
+            banner.getView().setVisibility(View.VISIBLE);
+            banner.play(coronaActivity);
+        }
+
+        // the displayed event is sent in the show() function since the activity takes control
+        // before this event is handled by Corona
+        adInstance.stats.recordShow(System.nanoTime() - adInstance.showStartedAt);
+        if ((adInstance.eventMask & EVENT_DISPLAYED) != 0) {
+            dispatchLuaEvent(adInstance.context, PHASE_DISPLAYED, adInstance.adType, adInstance.placementId);
+        }
+    }
+
+    // start loading the members of a group that have no ad, then show the first ready member (Lua thread)
+    private void showGroup(final RuntimeContext context, final PlacementGroup group, final ShowRequest request) {
+        final long requestedAt = System.nanoTime();
+        long now = SystemClock.elapsedRealtime();
+
+        // members in backoff are skipped silently, they are retried on a later show
+        final List<CoronaAdInstance> loads = new ArrayList<>();
+        for (int i = 0; i < group.placementIds.length; i++) {
+            CoronaAdInstance adInstance = context.placements.get(group.placementIds[i]);
+
+            if (adInstance != null) {
+                int state = adInstance.state.get();
+                if (adInstance.isLoaded(state) || (state == STATE_LOADING) || (state == STATE_SHOWING)
+                        || adInstance.isLoadSuppressed(now)) {
+                    continue;
+                }
+            }
+
+            adInstance = prepareLoad(context, group.loadRequests[i]);
+            if (adInstance != null) {
+                loads.add(adInstance);
+            }
+        }
+
+        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+        if (coronaActivity != null) {
+            Runnable runnableActivity = new Runnable() {
+                public void run() {
+                    long traceStart = trace.begin();
+
+                    CoronaAdInstance adInstance = claimFirstReady(context, group);
+                    if (adInstance != null) {
+                        adInstance.showStartedAt = requestedAt;
+                        showAd(coronaActivity, adInstance, request);
+                    } else {
+                        PluginLog.warning("No ad of group '%s' is loaded", group.name);
+                        if ((group.loadRequests[0].eventMask & EVENT_FAILED) != 0) {
+                            dispatchLuaEvent(context, PHASE_FAILED, group.adUnitType, group.name, RESPONSE_NOADS);
+                        }
+                    }
+
+                    for (CoronaAdInstance loading : loads) {
+                        requestLoad(coronaActivity, loading);
+                    }
+
+                    trace.end(TraceBuffer.CATEGORY_UI, "showGroup", traceStart,
+                            (adInstance != null) ? adInstance.placementIdString : null);
+                }
+            };
+
+            runWhenSdkReady(context, coronaActivity, runnableActivity);
+        }
+    }
+
+    // claim the highest priority member of a group that has an ad ready to show (UI thread)
+    private CoronaAdInstance claimFirstReady(RuntimeContext context, PlacementGroup group) {
+        long now = SystemClock.elapsedRealtime();
+
+        for (int placementId : group.placementIds) {
+            CoronaAdInstance adInstance = context.placements.get(placementId);
+
+            if ((adInstance != null) && (adInstance.state.get() == STATE_LOADED) && !adInstance.isExpired(now)
+                    && hasAdAvailable(adInstance) && adInstance.transition(STATE_LOADED, STATE_SHOWING)) {
+                adInstance.onShowStarted();
+                return adInstance;
+            }
+        }
+
+        return null;
+    }
+
+    // ask the SDK if a placement's ad can be played (UI thread)
+    private boolean hasAdAvailable(CoronaAdInstance adInstance) {
+        if (adInstance.adType.equals(TYPE_INTERSTITIAL)) {
+            return adProvider.hasInterstitial(adInstance.placementId);
+        } else if (adInstance.adType.equals(TYPE_VIDEO)) {
+            return adProvider.hasVideo(adInstance.placementId);
+        }
+
+        AdProvider.Banner banner = (AdProvider.Banner) adInstance.adInstance;
+        return (banner != null) && banner.hasAdAvailable();
+    }
+
+    // map the lockOrientation option to the SDK orientation
+    private SAOrientation orientationFor(String lockOrientation) {
+        if (lockOrientation == null) {
+            return SAOrientation.ANY;
+        } else if (lockOrientation.equals(LOCK_LANDSCAPE)) {
+            return SAOrientation.LANDSCAPE;
+        } else if (lockOrientation.equals(LOCK_PORTRAIT)) {
+            return SAOrientation.PORTRAIT;
+        }
+
+        PluginLog.warning("lockOrientation '%s' invalid. Using default 'any' orientation", lockOrientation);
+        return SAOrientation.ANY;
+    }
+
+    // remove a banner from the registry, a later load() starts from a fresh instance (Lua thread)
+    private void prepareHide(CoronaAdInstance adInstance) {
+        adInstance.autoLoad = false;
+        adInstance.state.set(STATE_CLOSED);
+        uiHandler.removeCallbacks(adInstance.expireTask);
+        adInstance.cancelTimeouts();
+        adInstance.context.placements.remove(adInstance.placementId, adInstance);
+    }
+
+    // read if a placement has an ad to show from its state (never blocks, never calls into the SDK)
+    // the state follows the SDK events, an expired ad is dropped from the cache instead (Lua thread)
+    private boolean isReady(CoronaAdInstance adInstance, long now) {
+        if (adInstance.isExpired(now)) {
+            uiHandler.post(adInstance.expireTask);
+            return false;
+        }
+
+        return adInstance.isLoaded();
+    }
+
+    // set the listener passed to load() for a placement, replacing an earlier one (Lua thread)
+    private static void setPlacementListener(RuntimeContext context, LuaState L, CoronaAdInstance adInstance, int listenerIndex) {
+        releasePlacementListener(context, L, adInstance.placementId);
+        context.placementListeners.put(adInstance.placementId, CoronaLua.newRef(L, listenerIndex));
+        context.placementListenerOwners.put(adInstance.placementId, adInstance);
+    }
+
+    // release the listener passed to load() for a placement, its events go to the init() listener again (Lua thread)
+    private static void releasePlacementListener(RuntimeContext context, LuaState L, int placementId) {
+        int listener = context.placementListeners.get(placementId, CoronaLua.REFNIL);
+        if (listener != CoronaLua.REFNIL) {
+            CoronaLua.deleteRef(L, listener);
+            context.placementListeners.delete(placementId);
+            context.placementListenerOwners.delete(placementId);
+        }
+    }
+
+    // close a banner removed by prepareHide() (UI thread)
+    private void hideBanner(CoronaAdInstance adInstance) {
+        // close banner
+        AdProvider.Banner banner = (AdProvider.Banner) adInstance.adInstance;
+        if (banner != null) {
+            banner.close();
+        }
+
+        // invalidate ad instance object
+        adInstance.dealloc();
+    }
+
+    // [Lua] superawesome.load(adUnitType, options)"
+    private class Load implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        Load(RuntimeContext context) {
+            this.context = context;
+        }
+
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "load";
+        }
+
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.load(adUnitType, options [, listener])");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
+
+            // check number of arguments
+            int nargs = L.getTop();
+            if ((nargs < 1) || (nargs > 4)) { // 4 for the legacy API: load(adUnitType, placementId, options, listener)
+                PluginLog.error("Expected 1 to 4 arguments, got %d", nargs);
+                return 0;
+            }
+
+            String adUnitType;
+            String placementId = null;
+            int optionsIndex;
+
+            if (L.type(1) == LuaType.STRING) {
+                adUnitType = L.toString(1);
+            } else {
+                PluginLog.error("adUnitType (string) expected, got: %s", L.typeName(1));
+                return 0;
+            }
+
+            // legacy API: load(adUnitType, placementId [, options])
+            if (L.type(2) == LuaType.STRING) {
+                placementId = L.toString(2);
+                optionsIndex = 3;
+            } else if (L.type(2) == LuaType.TABLE) {
+                optionsIndex = 2;
+            } else {
+                PluginLog.error("options (table) expected, got: %s", L.typeName(2));
+                return 0;
+            }
+
+            if (!parseOptions(L, optionsIndex, "options", LOAD_OPTIONS, context.loadOptionValues)) {
+                return 0;
+            }
+
+            // optional listener for the events of this placement
+            int listenerIndex = optionsIndex + 1;
+            boolean hasListener = !L.isNoneOrNil(listenerIndex);
+            if (hasListener && !CoronaLua.isListener(L, listenerIndex, PROVIDER_NAME)) {
+                PluginLog.error("listener expected, got: %s", L.typeName(listenerIndex));
+                return 0;
+            }
+
+            LoadRequest request = new LoadRequest(context, adUnitType, placementId, context.loadOptionValues);
+
+            // validation
+            final CoronaAdInstance adInstance = prepareLoad(context, request);
+            if (adInstance == null) {
+                return 0;
+            }
+
+            if (hasListener) {
+                setPlacementListener(context, L, adInstance, listenerIndex);
+            }
+
+            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+            if (coronaActivity != null) {
+                Runnable runnableActivity = new Runnable() {
+                    public void run() {
+                        long traceStart = trace.begin();
+                        requestLoad(coronaActivity, adInstance);
+                        trace.end(TraceBuffer.CATEGORY_UI, "load", traceStart, adInstance.placementIdString);
+                    }
+                };
+
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
+            }
+
+            return 0;
+        }
+    }
+
+    // [Lua] superawesome.loadMany(specs)
+    private class LoadMany implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        LoadMany(RuntimeContext context) {
+            this.context = context;
+        }
+
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "loadMany";
+        }
+
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.loadMany(specs)");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
+
+            // check number of arguments
+            int nargs = L.getTop();
+            if (nargs != 1) {
+                PluginLog.error("Expected 1 argument, got %d", nargs);
+                return 0;
+            }
+
+            if (L.type(1) != LuaType.TABLE) {
+                PluginLog.error("specs (table) expected, got: %s", L.typeName(1));
+                return 0;
+            }
+
+            // parse and validate every spec before loading anything, an invalid spec rejects the whole batch
+            int count = L.length(1);
+            LoadRequest[] requests = new LoadRequest[count];
+
+            for (int i = 0; i < count; i++) {
+                L.rawGet(1, i + 1);
+
+                if (L.type(-1) != LuaType.TABLE) {
+                    PluginLog.error("specs[%d] (table) expected, got: %s", i + 1, L.typeName(-1));
+                    L.pop(1);
+                    return 0;
+                }
+
+                // the spec name is only formatted for errors
+                String error = LOAD_SPEC.parse(L, L.getTop(), "specs", i + 1, context.loadSpecValues);
+                L.pop(1);
+
+                if (error != null) {
+                    PluginLog.error(error);
+                    return 0;
+                }
+
+                requests[i] = new LoadRequest(context, null, null, context.loadSpecValues);
+                if (validateLoad(context, requests[i]) == INVALID_PLACEMENT_ID) {
+                    return 0;
+                }
+            }
+
+            // claim the placements, then load them all from a single UI thread task
+            // placements that are loaded, busy or backing off are skipped like in load()
+            final List<CoronaAdInstance> adInstances = new ArrayList<>(count);
+            for (LoadRequest request : requests) {
+                CoronaAdInstance adInstance = prepareLoad(context, request);
+                if (adInstance != null) {
+                    adInstances.add(adInstance);
+                }
+            }
+
+            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+            if ((coronaActivity != null) && !adInstances.isEmpty()) {
+                Runnable runnableActivity = new Runnable() {
+                    public void run() {
+                        long traceStart = trace.begin();
+                        for (CoronaAdInstance adInstance : adInstances) {
+                            requestLoad(coronaActivity, adInstance);
+                        }
+                        trace.end(TraceBuffer.CATEGORY_UI, "loadMany", traceStart, null);
+                    }
+                };
+
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
+            }
+
+            return 0;
+        }
+    }
+
+    // [Lua] superawesome.isLoaded(placementId)
+    private class IsLoaded implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        IsLoaded(RuntimeContext context) {
+            this.context = context;
+        }
+
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "isLoaded";
+        }
+
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.isLoaded(placementId)");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
+
+            // check number of arguments
+            int nargs = L.getTop();
+            if (nargs != 1) {
+                PluginLog.error("Expected 1 argument, got %d", nargs);
+                return 0;
+            }
+
+            String placementId = null;
+
+            if (L.type(1) == LuaType.STRING) {
+                placementId = L.toString(1);
+            } else {
+                PluginLog.error("placementId (string) expected, got: %s", L.typeName(1));
+                return 0;
+            }
+
+            boolean hasLoaded = false;
+
+            // get ad info object
+            int pid = parsePlacementId(placementId);
+            CoronaAdInstance adInstance = (pid != INVALID_PLACEMENT_ID) ? context.placements.get(pid) : null;
+
+            if (adInstance != null) {
+                long now = SystemClock.elapsedRealtime();
+
+                hasLoaded = isReady(adInstance, now);
+                if (hasLoaded) {
+                    adInstance.lastUsedAt = now;
+                }
+            }
+
+            L.pushBoolean(hasLoaded);
+
+            return 1;
+        }
+    }
+
+    // [Lua] superawesome.show(placementId [, options])
+    private class Show implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        Show(RuntimeContext context) {
+            this.context = context;
+        }
+
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "show";
+        }
+
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(final LuaState L) {
+            PluginLog.enter("superawesome.show(placementId [, options])");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
+
+            // check number of arguments
+            int nargs = L.getTop();
+            if ((nargs < 1) || (nargs > 2)) {
+                PluginLog.error("Expected 1 or 2 arguments, got %d", nargs);
+                return 0;
+            }
+
+            String placementId;
+
+            if (L.type(1) == LuaType.STRING) {
+                placementId = L.toString(1);
+            } else {
+                PluginLog.error("placementId (string) expected, got: %s", L.typeName(1));
+                return 0;
+            }
+
+            if (!parseOptions(L, 2, "options", SHOW_OPTIONS, context.showOptionValues)) {
+                return 0;
+            }
+
+            final ShowRequest request = newShowRequest(placementId, context.showOptionValues);
+            if (request == null) {
+                return 0;
+            }
+
+            PlacementGroup group = context.placementGroups.get(placementId);
+            if (group != null) {
+                showGroup(context, group, request);
+                return 0;
+            }
+
+            final CoronaAdInstance adInstance = prepareShow(context, request);
+            if (adInstance == null) {
+                return 0;
+            }
+
+            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+
+            if (coronaActivity != null) {
+                Runnable runnableActivity = new Runnable() {
+                    public void run() {
+                        long traceStart = trace.begin();
+                        showAd(coronaActivity, adInstance, request);
+                        trace.end(TraceBuffer.CATEGORY_UI, "show", traceStart, adInstance.placementIdString);
+                    }
+                };
+
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
+            }
+
+            return 0;
+        }
+    }
+
+    // [Lua] superawesome.showMany(specs)
+    private class ShowMany implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        ShowMany(RuntimeContext context) {
+            this.context = context;
+        }
+
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "showMany";
+        }
+
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.showMany(specs)");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
+
+            // check number of arguments
+            int nargs = L.getTop();
+            if (nargs != 1) {
+                PluginLog.error("Expected 1 argument, got %d", nargs);
+                return 0;
+            }
+
+            if (L.type(1) != LuaType.TABLE) {
+                PluginLog.error("specs (table) expected, got: %s", L.typeName(1));
+                return 0;
+            }
+
+            // parse and validate every spec before showing anything, an invalid spec rejects the whole batch
+            int count = L.length(1);
+            final ShowRequest[] requests = new ShowRequest[count];
+
+            for (int i = 0; i < count; i++) {
+                L.rawGet(1, i + 1);
+
+                if (L.type(-1) != LuaType.TABLE) {
+                    PluginLog.error("specs[%d] (table) expected, got: %s", i + 1, L.typeName(-1));
+                    L.pop(1);
+                    return 0;
+                }
+
+                // the spec name is only formatted for errors
+                String error = SHOW_SPEC.parse(L, L.getTop(), "specs", i + 1, context.showSpecValues);
+                L.pop(1);
+
+                if (error != null) {
+                    PluginLog.error(error);
+                    return 0;
+                }
+
+                requests[i] = newShowRequest(null, context.showSpecValues);
+                if ((requests[i] == null) || (parsePlacementId(requests[i].placementId) == INVALID_PLACEMENT_ID)) {
                     return 0;
                 }
             }
 
-            // set the delegates (banners are set on each instance)
-            SAInterstitialAd.setListener(new CoronaSADelegate(TYPE_INTERSTITIAL));
-            SAVideoAd.setListener(new CoronaSADelegate(TYPE_VIDEO));
+            // claim the placements, then show them all from a single UI thread task
+            // placements without an ad to show are skipped like in show()
+            final CoronaAdInstance[] adInstances = new CoronaAdInstance[count];
+            boolean hasClaimed = false;
 
-            // save setting for future use
-            superAwesomeObjects.put(TESTMODE_KEY, testMode);
-            AwesomeAds.init(CoronaEnvironment.getCoronaActivity(), testMode);
+            for (int i = 0; i < count; i++) {
+                adInstances[i] = prepareShow(context, requests[i]);
+                hasClaimed |= (adInstances[i] != null);
+            }
 
-            // log the plugin version to device console
-            Log.i(CORONA_TAG, PLUGIN_NAME + ": " + PLUGIN_VERSION + " (SDK: " + PLUGIN_SDK_VERSION + ")");
+            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
 
-            // send Corona Lua event
-            HashMap<String, Object> coronaEvent = new HashMap<>();
-            coronaEvent.put(EVENT_PHASE_KEY, PHASE_INIT);
-            dispatchLuaEvent(coronaEvent);
+            if ((coronaActivity != null) && hasClaimed) {
+                Runnable runnableActivity = new Runnable() {
+                    public void run() {
+                        long traceStart = trace.begin();
+                        for (int i = 0; i < adInstances.length; i++) {
+                            if (adInstances[i] != null) {
+                                showAd(coronaActivity, adInstances[i], requests[i]);
+                            }
+                        }
+                        trace.end(TraceBuffer.CATEGORY_UI, "showMany", traceStart, null);
+                    }
+                };
+
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
+            }
 
             return 0;
         }
     }
 
-    // [Lua] superawesome.load(adUnitType, options)"
-    private class Load implements NamedJavaFunction {
+    // [Lua] superawesome.hide(placementId)
+    private class Hide implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        Hide(RuntimeContext context) {
+            this.context = context;
+        }
+
         // Gets the name of the Lua function as it would appear in the Lua script
         @Override
         public String getName() {
-            return "load";
+            return "hide";
         }
 
         // This method is executed when the Lua function is called
         @Override
         public int invoke(LuaState L) {
-            functionSignature = "superawesome.load(adUnitType, options)";
+            PluginLog.enter("superawesome.hide(placementId)");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
 
-            if (!isSDKInitialized()) {
+            if (!isSDKInitialized(context)) {
                 return 0;
             }
 
             // check number of arguments
             int nargs = L.getTop();
-            if ((nargs < 1) || (nargs > 3)) { // 3 for backwards compatibility with legacy API
-                logMsg(ERROR_MSG, "Expected 1 or 2 arguments, got " + nargs);
+            if (nargs != 1) {
+                PluginLog.error("Expected 1 argument, got %d", nargs);
                 return 0;
             }
 
-            String adUnitType = null;
             String placementId = null;
-            String bannerSize = BANNER_50;
-            boolean legacyAPI = false;
-            boolean bannerTransparency = false;
 
             if (L.type(1) == LuaType.STRING) {
-                adUnitType = L.toString(1);
+                placementId = L.toString(1);
             } else {
-                logMsg(ERROR_MSG, "adUnitType (string) expected, got: " + L.typeName(1));
+                PluginLog.error("placementId (string) expected, got %s", L.typeName(1));
                 return 0;
             }
 
-            if (L.type(2) == LuaType.STRING) {
-                placementId = L.toString(2);
-                legacyAPI = true;
-            } else if (L.type(2) == LuaType.TABLE) {
-                // traverse all options
-                for (L.pushNil(); L.next(2); L.pop(1)) {
-                    if (L.type(-2) != LuaType.STRING) {
-                        logMsg(ERROR_MSG, "options must be a key/value table");
-                        return 0;
-                    }
-
-                    String key = L.toString(-2);
-
-                    if (key.equals("placementId")) {
-                        if (L.type(-1) == LuaType.STRING) {
-                            placementId = L.toString(-1);
-                        } else {
-                            logMsg(ERROR_MSG, "options.placementId (string) expected, got: " + L.typeName(-1));
-                            return 0;
-                        }
-                    } else if (key.equals("bannerSize")) {
-                        if (L.type(-1) == LuaType.STRING) {
-                            bannerSize = L.toString(-1);
-                        } else {
-                            logMsg(ERROR_MSG, "options.bannerSize (string) expected, got: " + L.typeName(-1));
-                            return 0;
-                        }
-                    } else if (key.equals("bannerTransparency")) {
-                        if (L.type(-1) == LuaType.BOOLEAN) {
-                            bannerTransparency = L.toBoolean(-1);
-                        } else {
-                            logMsg(ERROR_MSG, "options.bannerTransparency (boolean) expected, got: " + L.typeName(-1));
-                            return 0;
-                        }
-                    } else {
-                        logMsg(ERROR_MSG, "Invalid option '" + key + "'");
-                        return 0;
-                    }
-                }
-            } else {
-                logMsg(ERROR_MSG, "options (table) expected, got: " + L.typeName(2));
+            final int pid = parsePlacementId(placementId);
+            if (pid == INVALID_PLACEMENT_ID) {
                 return 0;
             }
 
-            if (legacyAPI) {
-                if (!L.isNoneOrNil(3)) {
-                    if (L.type(3) == LuaType.TABLE) {
-                        // traverse all options
-                        for (L.pushNil(); L.next(3); L.pop(1)) {
-                            if (L.type(-2) != LuaType.STRING) {
-                                logMsg(ERROR_MSG, "options must be a key/value table");
-                                return 0;
-                            }
-
-                            String key = L.toString(-2);
-
-                            if (key.equals("bannerSize")) {
-                                if (L.type(-1) == LuaType.STRING) {
-                                    bannerSize = L.toString(-1);
-                                } else {
-                                    logMsg(ERROR_MSG, "options.bannerSize (string) expected, got: " + L.typeName(-1));
-                                    return 0;
-                                }
-                            } else {
-                                logMsg(ERROR_MSG, "Invalid option '" + key + "'");
-                                return 0;
-                            }
-                        }
-                    } else {
-                        logMsg(ERROR_MSG, "options (table) expected, got: " + L.typeName(3));
-                        return 0;
-                    }
-                }
+            // get ad info
+            final CoronaAdInstance adInstance = context.placements.get(pid);
+            if (adInstance == null) {
+                PluginLog.error("placementId '%s' not loaded", placementId);
+                return 0;
             }
 
-            // validation
-            if (!validAdTypes.contains(adUnitType)) {
-                logMsg(ERROR_MSG, "adUnitType '" + adUnitType + "' invalid");
+            // only banners can be hidden
+            if (!adInstance.adType.equals(TYPE_BANNER)) {
+                PluginLog.error("placementId '%s' is not a banner", placementId);
                 return 0;
             }
 
-            // make final vars for inner loop
+            prepareHide(adInstance);
+            releasePlacementListener(context, L, pid);
+
             final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-            final boolean testMode = (boolean) superAwesomeObjects.get(TESTMODE_KEY);
-            final boolean fBannerTransparency = bannerTransparency;
-            final String fAdUnitType = adUnitType;
-            final String fPlacementId = placementId;
-            final String fBannerSize = bannerSize;
-
-            // check old instance
-            final CoronaAdInstance oldInstance = (CoronaAdInstance) superAwesomeObjects.get(fPlacementId);
-            if (oldInstance != null) {
-                if (!oldInstance.adType.equals(fAdUnitType)) {
-                    logMsg(ERROR_MSG, "placementId '" + fPlacementId + "' is not of type " + fAdUnitType);
-                    return 0;
-                }
-            }
 
             if (coronaActivity != null) {
                 Runnable runnableActivity = new Runnable() {
                     public void run() {
-                        if (fAdUnitType.equals(TYPE_INTERSTITIAL)) {
-                            if (oldInstance != null) {
-                                oldInstance.dealloc();
-                            }
+                        long traceStart = trace.begin();
+                        hideBanner(adInstance);
+                        trace.end(TraceBuffer.CATEGORY_UI, "hide", traceStart, adInstance.placementIdString);
+                    }
+                };
+
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
+            }
 
-                            SAInterstitialAd.setTestMode(testMode);
+            return 0;
+        }
+    }
 
-                            // create ad info object to hold extra information not available in the SDK
-                            CoronaAdInstance adInstance = new CoronaAdInstance(null, TYPE_INTERSTITIAL);
-                            superAwesomeObjects.put(fPlacementId, adInstance);
+    // [Lua] superawesome.hideAll()
+    private class HideAll implements NamedJavaFunction {
+        private final RuntimeContext context;
 
-                            SAInterstitialAd.load(Integer.parseInt(fPlacementId), coronaActivity);
-                        } else if (fAdUnitType.equals(TYPE_VIDEO)) {
-                            if (oldInstance != null) {
-                                oldInstance.dealloc();
-                            }
+        HideAll(RuntimeContext context) {
+            this.context = context;
+        }
 
-                            SAVideoAd.setTestMode(testMode);
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "hideAll";
+        }
 
-                            // create ad info object to hold extra information not available in the SDK
-                            CoronaAdInstance adInstance = new CoronaAdInstance(null, TYPE_VIDEO);
-                            superAwesomeObjects.put(fPlacementId, adInstance);
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.hideAll()");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
 
-                            SAVideoAd.load(Integer.parseInt(fPlacementId), coronaActivity);
-                        } else if (fAdUnitType.equals(TYPE_BANNER)) {
-                            if (oldInstance != null) {
-                                SABannerAd banner = (SABannerAd) oldInstance.adInstance;
-                                if (banner.hasAdAvailable()) {
-                                    // can't get the delegate of the banner so create a temporary one here for sending the event
-                                    CoronaSADelegate temporaryDelegate = new CoronaSADelegate(TYPE_BANNER);
-                                    temporaryDelegate.onEvent(Integer.parseInt(fPlacementId), SAEvent.adAlreadyLoaded);
-                                    return;
-                                }
+            if (!isSDKInitialized(context)) {
+                return 0;
+            }
 
-                                oldInstance.dealloc();
-                            }
+            // check number of arguments
+            int nargs = L.getTop();
+            if (nargs != 0) {
+                PluginLog.error("Expected no arguments, got %d", nargs);
+                return 0;
+            }
 
-                            // calculate the Corona->device coordinate ratio.
-                            // we don't use display.contentScaleY here as there are cases where it's difficult to get the proper values to use
-                            // especially on Android. uses the same formula for iOS and Android for the sake of consistency.
-                            // re-calculate this value on every load as the ratio can change between orientation changes
-                            Point point1 = coronaActivity.convertCoronaPointToAndroidPoint(0, 0);
-                            Point point2 = coronaActivity.convertCoronaPointToAndroidPoint(1000, 1000);
-                            double yRatio = (double) (point2.y - point1.y) / 1000.0;
-                            superAwesomeObjects.put(Y_RATIO_KEY, yRatio);
-
-                            // create the banner instance
-                            SABannerAd banner = new SABannerAd(coronaActivity);
-                            banner.setId((int) (random() * Integer.MAX_VALUE)); // set an id to avoid crash when displaying ad
-                            banner.setListener(new CoronaSADelegate(TYPE_BANNER));
-                            banner.setTestMode(testMode);
-                            banner.setColor(fBannerTransparency);
-                            banner.setVisibility(View.INVISIBLE);
-
-                            int bannerHeight = 50;
-
-                            if (fBannerSize.equals(BANNER_50)) {
-                                bannerHeight = 50;
-                            } else if (fBannerSize.equals(BANNER_90)) {
-                                bannerHeight = 90;
-                            } else if (fBannerSize.equals(BANNER_250)) {
-                                bannerHeight = 250;
-                            } else {
-                                logMsg(WARNING_MSG, "options.bannerSize '" + fBannerSize + "' invalid. Using default BANNER_50");
-                            }
+            // remove every banner, then tear them all down from a single UI thread task
+            final List<CoronaAdInstance> banners = new ArrayList<>();
+            for (CoronaAdInstance adInstance : context.placements.values()) {
+                if (adInstance.adType.equals(TYPE_BANNER)) {
+                    prepareHide(adInstance);
+                    releasePlacementListener(context, L, adInstance.placementId);
+                    banners.add(adInstance);
+                }
+            }
 
-                            // create ad info object to hold extra information not available in the SDK
-                            CoronaAdInstance adInstance = new CoronaAdInstance(banner, TYPE_BANNER, bannerHeight);
-                            superAwesomeObjects.put(fPlacementId, adInstance);
+            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
 
-                            banner.load(Integer.parseInt(fPlacementId));
+            if ((coronaActivity != null) && !banners.isEmpty()) {
+                Runnable runnableActivity = new Runnable() {
+                    public void run() {
+                        long traceStart = trace.begin();
+                        for (CoronaAdInstance adInstance : banners) {
+                            hideBanner(adInstance);
                         }
+                        trace.end(TraceBuffer.CATEGORY_UI, "hideAll", traceStart, null);
                     }
                 };
 
-                coronaActivity.runOnUiThread(runnableActivity);
+                runWhenSdkReady(context, coronaActivity, runnableActivity);
             }
 
             return 0;
         }
     }
 
-    // [Lua] superawesome.isLoaded(placementId)
-    private class IsLoaded implements NamedJavaFunction {
+    // [Lua] superawesome.registerGroup(groupName, adUnitType, placementIds [, options])
+    private class RegisterGroup implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        RegisterGroup(RuntimeContext context) {
+            this.context = context;
+        }
+
         // Gets the name of the Lua function as it would appear in the Lua script
         @Override
         public String getName() {
-            return "isLoaded";
+            return "registerGroup";
         }
 
         // This method is executed when the Lua function is called
         @Override
         public int invoke(LuaState L) {
-            functionSignature = "superawesome.isLoaded(placementId)";
+            PluginLog.enter("superawesome.registerGroup(groupName, adUnitType, placementIds [, options])");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
 
-            if (!isSDKInitialized()) {
+            if (!isSDKInitialized(context)) {
                 return 0;
             }
 
             // check number of arguments
             int nargs = L.getTop();
-            if (nargs != 1) {
-                logMsg(ERROR_MSG, "Expected 1 argument, got " + nargs);
+            if ((nargs < 3) || (nargs > 4)) {
+                PluginLog.error("Expected 3 or 4 arguments, got %d", nargs);
                 return 0;
             }
 
-            String placementId = null;
+            String groupName;
+            String adUnitType;
 
             if (L.type(1) == LuaType.STRING) {
-                placementId = L.toString(1);
+                groupName = L.toString(1);
             } else {
-                logMsg(ERROR_MSG, "placementId (string) expected, got: " + L.typeName(1));
+                PluginLog.error("groupName (string) expected, got: %s", L.typeName(1));
                 return 0;
             }
 
-            boolean hasLoaded = false;
+            // show() tells groups and placements apart by their name
+            if (groupName.isEmpty() || Character.isDigit(groupName.charAt(0))) {
+                PluginLog.error("groupName '%s' invalid. Group names can't start with a digit", groupName);
+                return 0;
+            }
 
-            // get ad info object
-            CoronaAdInstance adInstance = (CoronaAdInstance) superAwesomeObjects.get(placementId);
+            if (L.type(2) == LuaType.STRING) {
+                adUnitType = L.toString(2);
+            } else {
+                PluginLog.error("adUnitType (string) expected, got: %s", L.typeName(2));
+                return 0;
+            }
 
-            if (adInstance != null) {
-                if (adInstance.adType.equals(TYPE_INTERSTITIAL)) {
-                    hasLoaded = SAInterstitialAd.hasAdAvailable(Integer.parseInt(placementId));
-                } else if (adInstance.adType.equals(TYPE_VIDEO)) {
-                    hasLoaded = SAVideoAd.hasAdAvailable(Integer.parseInt(placementId));
-                } else if (adInstance.adType.equals(TYPE_BANNER)) {
-                    SABannerAd banner = (SABannerAd) adInstance.adInstance;
-                    hasLoaded = banner.hasAdAvailable();
+            if (!validAdTypes.contains(adUnitType)) {
+                PluginLog.error("adUnitType '%s' invalid", adUnitType);
+                return 0;
+            }
+
+            if (L.type(3) != LuaType.TABLE) {
+                PluginLog.error("placementIds (table) expected, got: %s", L.typeName(3));
+                return 0;
+            }
+
+            if (!parseOptions(L, 4, "options", LOAD_OPTIONS, context.loadOptionValues)) {
+                return 0;
+            }
+
+            if (context.loadOptionValues.has(LOAD_PLACEMENT_ID)) {
+                PluginLog.error("options.placementId can't be used with groups");
+                return 0;
+            }
+
+            int count = L.length(3);
+            if (count == 0) {
+                PluginLog.error("placementIds must contain at least one placementId");
+                return 0;
+            }
+
+            int[] placementIds = new int[count];
+            LoadRequest[] loadRequests = new LoadRequest[count];
+
+            for (int i = 0; i < count; i++) {
+                L.rawGet(3, i + 1);
+                String placementId = (L.type(-1) == LuaType.STRING) ? L.toString(-1) : null;
+                L.pop(1);
+
+                if (placementId == null) {
+                    PluginLog.error("placementIds[%d] (string) expected", i + 1);
+                    return 0;
+                }
+
+                placementIds[i] = parsePlacementId(placementId);
+                if (placementIds[i] == INVALID_PLACEMENT_ID) {
+                    return 0;
+                }
+
+                loadRequests[i] = new LoadRequest(context, adUnitType, placementId, context.loadOptionValues);
+                if (loadRequests[i].eventMask < 0) {
+                    return 0;
                 }
             }
 
-            L.pushBoolean(hasLoaded);
+            context.placementGroups.put(groupName, new PlacementGroup(groupName, adUnitType, placementIds, loadRequests));
 
-            return 1;
+            return 0;
         }
     }
 
-    // [Lua] superawesome.show(placementId [, options])
-    private class Show implements NamedJavaFunction {
+    // [Lua] superawesome.getStats()
+    private class GetStats implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        GetStats(RuntimeContext context) {
+            this.context = context;
+        }
+
         // Gets the name of the Lua function as it would appear in the Lua script
         @Override
         public String getName() {
-            return "show";
+            return "getStats";
         }
 
         // This method is executed when the Lua function is called
         @Override
-        public int invoke(final LuaState L) {
-            functionSignature = "superawesome.show(placementId [, options])";
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.getStats()");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
 
-            if (!isSDKInitialized()) {
+            if (!isSDKInitialized(context)) {
                 return 0;
             }
 
             // check number of arguments
             int nargs = L.getTop();
-            if ((nargs < 1) || (nargs > 2)) {
-                logMsg(ERROR_MSG, "Expected 1 or 2 arguments, got " + nargs);
+            if (nargs != 0) {
+                PluginLog.error("Expected no arguments, got %d", nargs);
                 return 0;
             }
 
-            String placementId = null;
-            String lockOrientation = null;
-            String yAlign = null;
-            double yOffset = 0;
-            boolean useParentalGate = false;
-            boolean useSmallClickZone = false;
-            boolean showVideoCloseButton = true;
-            boolean closeVideoAtEnd = false;
-
-            if (L.type(1) == LuaType.STRING) {
-                placementId = L.toString(1);
-            } else {
-                logMsg(ERROR_MSG, "placementId (string) expected, got: " + L.typeName(1));
-                return 0;
+            L.newTable();
+
+            pushLatency(L, eventQueueLatency);
+            L.setField(-2, "eventQueueLatency");
+
+            // startup timing (milliseconds)
+            L.newTable();
+            L.pushNumber(context.initCallNanos / 1e6);
+            L.setField(-2, "initCall");
+            L.pushNumber(context.sdkInitNanos / 1e6);
+            L.setField(-2, "sdkInit");
+            L.pushNumber(context.initToReadyNanos / 1e6);
+            L.setField(-2, "ready");
+            L.pushNumber(context.replayedCalls);
+            L.setField(-2, "queuedCalls");
+            L.setField(-2, "startup");
+
+            // registry gauge
+            compactRegistry(context);
+            L.newTable();
+            L.pushNumber(context.placements.size());
+            L.setField(-2, "entries");
+            L.pushNumber(MAX_PLACEMENTS);
+            L.setField(-2, "maxEntries");
+            L.pushNumber(context.removedPlacements.get());
+            L.setField(-2, "removed");
+            L.setField(-2, "registry");
+
+            L.newTable();
+            pushStats(L, interstitialStats);
+            L.setField(-2, TYPE_INTERSTITIAL);
+            pushStats(L, videoStats);
+            L.setField(-2, TYPE_VIDEO);
+            pushStats(L, bannerStats);
+            L.setField(-2, TYPE_BANNER);
+            L.setField(-2, "adTypes");
+
+            L.newTable();
+            for (PlacementStats stats : placementStats.values()) {
+                pushStats(L, stats);
+                L.setField(-2, stats.placementId);
             }
+            L.setField(-2, "placements");
 
-            if (!L.isNoneOrNil(2)) {
-                if (L.type(2) == LuaType.TABLE) {
-                    // traverse all options
-                    for (L.pushNil(); L.next(2); L.pop(1)) {
-                        if (L.type(-2) != LuaType.STRING) {
-                            logMsg(ERROR_MSG, "options must be a key/value table");
-                            return 0;
-                        }
+            return 1;
+        }
+    }
 
-                        String key = L.toString(-2);
+    // [Lua] superawesome.getStatus()
+    private class GetStatus implements NamedJavaFunction {
+        private final RuntimeContext context;
 
-                        if (key.equals("useParentalGate")) {
-                            if (L.type(-1) == LuaType.BOOLEAN) {
-                                useParentalGate = L.toBoolean(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.useParentalGate (boolean) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("showVideoCloseButton")) {
-                            if (L.type(-1) == LuaType.BOOLEAN) {
-                                showVideoCloseButton = L.toBoolean(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.showVideoCloseButton (boolean) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("closeVideoAtEnd")) {
-                            if (L.type(-1) == LuaType.BOOLEAN) {
-                                closeVideoAtEnd = L.toBoolean(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.closeVideoAtEnd (boolean) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("useSmallClickZone")) {
-                            if (L.type(-1) == LuaType.BOOLEAN) {
-                                useSmallClickZone = L.toBoolean(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.useSmallClickZone (boolean) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("lockOrientation")) {
-                            if (L.type(-1) == LuaType.STRING) {
-                                lockOrientation = L.toString(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.lockOrientation (string) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("y")) {
-                            if (L.type(-1) == LuaType.STRING) {
-                                yAlign = L.toString(-1);
-                            } else if (L.type(-1) == LuaType.NUMBER) {
-                                yOffset = L.toNumber(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.y (string or number) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else if (key.equals("yAlign")) { // legacy API (use y instead)
-                            if (L.type(-1) == LuaType.STRING) {
-                                yAlign = L.toString(-1);
-                            } else {
-                                logMsg(ERROR_MSG, "options.yAlign (string) expected, got: " + L.typeName(-1));
-                                return 0;
-                            }
-                        } else {
-                            logMsg(ERROR_MSG, "Invalid option '" + key + "'");
-                            return 0;
-                        }
-                    }
-                } else {
-                    logMsg(ERROR_MSG, "options (table) expected, got: " + L.typeName(2));
-                    return 0;
-                }
-            }
+        GetStatus(RuntimeContext context) {
+            this.context = context;
+        }
 
-            // validation
-            if (yAlign != null) {
-                if (!validBannerPositions.contains(yAlign)) {
-                    logMsg(ERROR_MSG, "y '" + yAlign + "' invalid");
-                    return 0;
-                }
-            }
+        // Gets the name of the Lua function as it would appear in the Lua script
+        @Override
+        public String getName() {
+            return "getStatus";
+        }
 
-            final CoronaAdInstance adInstance = (CoronaAdInstance) superAwesomeObjects.get(placementId);
-            if (adInstance == null) {
-                logMsg(ERROR_MSG, "placementId '" + placementId + "' not loaded");
+        // This method is executed when the Lua function is called
+        @Override
+        public int invoke(LuaState L) {
+            PluginLog.enter("superawesome.getStatus()");
+            trace.instant(TraceBuffer.CATEGORY_LUA, getName(), null);
+
+            if (!isSDKInitialized(context)) {
                 return 0;
             }
 
-            // make final vars for inner loop
-            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-            final String fPlacementId = placementId;
-            final String fLockOrientation = lockOrientation;
-            final String fYAlign = yAlign;
-            final boolean fUseParentalGate = useParentalGate;
-            final boolean fShowVideoCloseButton = showVideoCloseButton;
-            final boolean fUseSmallClickZone = useSmallClickZone;
-            final boolean fCloseVideoAtEnd = closeVideoAtEnd;
-            final double fYOffset = yOffset;
-
-            if (coronaActivity != null) {
-                Runnable runnableActivity = new Runnable() {
-                    public void run() {
-                        if (adInstance.adType.equals(TYPE_INTERSTITIAL)) {
-                            if (!SAInterstitialAd.hasAdAvailable(Integer.parseInt(fPlacementId))) {
-                                logMsg(ERROR_MSG, "placementId '" + fPlacementId + "' not loaded");
-                                return;
-                            }
-
-                            SAInterstitialAd.setParentalGate(fUseParentalGate);
-
-                            if (fLockOrientation == null) {
-                                SAInterstitialAd.setOrientation(SAOrientation.ANY);
-                            } else if (fLockOrientation.equals(LOCK_LANDSCAPE)) {
-                                SAInterstitialAd.setOrientation(SAOrientation.LANDSCAPE);
-                            } else if (fLockOrientation.equals(LOCK_PORTRAIT)) {
-                                SAInterstitialAd.setOrientation(SAOrientation.PORTRAIT);
-                            } else {
-                                logMsg(WARNING_MSG, "lockOrientation '" + fLockOrientation + "' invalid. Using default 'any' orientation");
-                                SAInterstitialAd.setOrientation(SAOrientation.ANY);
-                            }
-
-                            SAInterstitialAd.play(Integer.parseInt(fPlacementId), coronaActivity);
-                        } else if (adInstance.adType.equals(TYPE_VIDEO)) {
-                            if (!SAVideoAd.hasAdAvailable(Integer.parseInt(fPlacementId))) {
-                                logMsg(ERROR_MSG, "placementId '" + fPlacementId + "' not loaded");
-                                return;
-                            }
-
-                            SAVideoAd.setParentalGate(fUseParentalGate);
-                            SAVideoAd.setCloseButton(fShowVideoCloseButton);
-                            SAVideoAd.setSmallClick(fUseSmallClickZone);
-                            SAVideoAd.setCloseAtEnd(fCloseVideoAtEnd);
-
-                            if (fLockOrientation == null) {
-                                SAVideoAd.setOrientation(SAOrientation.ANY);
-                            } else if (fLockOrientation.equals(LOCK_LANDSCAPE)) {
-                                SAVideoAd.setOrientation(SAOrientation.LANDSCAPE);
-                            } else if (fLockOrientation.equals(LOCK_PORTRAIT)) {
-                                SAVideoAd.setOrientation(SAOrientation.PORTRAIT);
-                            } else {
-                                logMsg(WARNING_MSG, "lockOrientation '" + fLockOrientation + "' invalid. Using default 'any' orientation");
-                                SAVideoAd.setOrientation(SAOrientation.ANY);
-                            }
+            // check number of arguments
+            int nargs = L.getTop();
+            if (nargs != 0) {
+                PluginLog.error("Expected no arguments, got %d", nargs);
+                return 0;
+            }
 
-                            SAVideoAd.play(Integer.parseInt(fPlacementId), coronaActivity);
-                        } else if (adInstance.adType.equals(TYPE_BANNER)) {
-                            SABannerAd bannerAd = (SABannerAd) adInstance.adInstance;
-                            if (!bannerAd.hasAdAvailable()) {
-                                logMsg(ERROR_MSG, "placementId '" + fPlacementId + "' not loaded");
-                                return;
-                            }
+            // same placement state reads as isLoaded(), without marking the placements as used
+            long now = SystemClock.elapsedRealtime();
+            compactRegistry(context);
+            List<CoronaAdInstance> adInstances = context.placements.values();
 
-                            // remove old layout
-                            if (bannerAd.getParent() != null) {
-                                coronaActivity.getOverlayView().removeView(bannerAd);
-                            }
+            L.newTable(0, adInstances.size() + context.placementGroups.size());
 
-                            // get device scale
-                            double deviceScale = coronaActivity.getApplicationContext().getResources().getDisplayMetrics().density;
-
-                            // set final layout params
-                            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
-                                    FrameLayout.LayoutParams.MATCH_PARENT,
-                                    (int) (adInstance.height * deviceScale)
-                            );
-
-                            // set the banner position
-                            if (fYAlign == null) {
-                                Display display = coronaActivity.getWindowManager().getDefaultDisplay();
-                                int orientation = coronaActivity.getResources().getConfiguration().orientation;
-                                int orientedHeight;
-
-                                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR2) {
-                                    if (orientation == ORIENTATION_PORTRAIT) {
-                                        orientedHeight = display.getHeight();
-                                    } else {
-                                        orientedHeight = display.getWidth();
-                                    }
-                                } else {
-                                    Point size = new Point();
-                                    display.getSize(size);
-
-                                    if (orientation == ORIENTATION_PORTRAIT) {
-                                        orientedHeight = size.y;
-                                    } else {
-                                        orientedHeight = size.x;
-                                    }
-                                }
-
-                                // convert corona coordinates to device coordinates and set banner position
-                                double newBannerY = ceil(fYOffset * (double) superAwesomeObjects.get(Y_RATIO_KEY));
-
-                                // make sure the banner frame is visible.
-                                // adjust it if the user has specified 'y' which will render it partially off-screen
-                                if (newBannerY >= 0) { // offset from top
-                                    if (newBannerY + bannerAd.getHeight() > orientedHeight) {
-                                        logMsg(WARNING_MSG, "Banner y position off screen. Adjusting position.");
-                                        params.gravity = Gravity.BOTTOM | Gravity.CENTER;
-                                    } else {
-                                        params.gravity = Gravity.TOP | Gravity.CENTER;
-                                        params.topMargin = (int) newBannerY;
-                                    }
-                                } else { // offset from bottom
-                                    if (orientedHeight - bannerAd.getHeight() + newBannerY < 0) {
-                                        logMsg(WARNING_MSG, "Banner y position off screen. Adjusting position.");
-                                        params.gravity = Gravity.TOP | Gravity.CENTER;
-                                    } else {
-                                        params.gravity = Gravity.BOTTOM | Gravity.CENTER;
-                                        params.bottomMargin = Math.abs((int) newBannerY);
-                                    }
-                                }
-                            } else {
-                                if (fYAlign.equals(BANNER_ALIGN_TOP)) {
-                                    params.gravity = Gravity.TOP | Gravity.CENTER;
-                                } else if (fYAlign.equals(BANNER_ALIGN_CENTER)) {
-                                    params.gravity = Gravity.CENTER;
-                                } else if (fYAlign.equals(BANNER_ALIGN_BOTTOM)) {
-                                    params.gravity = Gravity.BOTTOM | Gravity.CENTER;
-                                }
-                            }
+            for (CoronaAdInstance adInstance : adInstances) {
+                if (adInstance.state.get() == STATE_REMOVED) {
+                    continue;   // unregistered since the registry was compacted
+                }
 
-                            // display the banner
-                            bannerAd.setVisibility(View.VISIBLE);
-                            coronaActivity.getOverlayView().addView(bannerAd, params);
-                            bannerAd.play(coronaActivity);
-                            bannerAd.bringToFront();
-                        }
+                L.pushBoolean(isReady(adInstance, now));
+                L.setField(-2, adInstance.placementIdString);
+            }
 
-                        // the displayed event is sent in the show() function since the activity takes control
-                        // before this event is handled by Corona
-                        Map<String, Object> coronaEvent = new HashMap<>();
-                        coronaEvent.put(EVENT_PHASE_KEY, PHASE_DISPLAYED);
-                        coronaEvent.put(EVENT_TYPE_KEY, adInstance.adType);
-                        coronaEvent.put(EVENT_PLACEMENTID_KEY, fPlacementId);
-                        dispatchLuaEvent(coronaEvent);
+            // a group is ready when one of its members is
+            for (PlacementGroup group : context.placementGroups.values()) {
+                boolean ready = false;
+                for (int placementId : group.placementIds) {
+                    CoronaAdInstance adInstance = context.placements.get(placementId);
+                    if ((adInstance != null) && isReady(adInstance, now)) {
+                        ready = true;
+                        break;
                     }
-                };
+                }
 
-                coronaActivity.runOnUiThread(runnableActivity);
+                L.pushBoolean(ready);
+                L.setField(-2, group.name);
             }
 
-            return 0;
+            return 1;
         }
     }
 
-    // [Lua] superawesome.hide(placementId)
-    private class Hide implements NamedJavaFunction {
+    // [Lua] superawesome.dumpTrace(path)
+    private class DumpTrace implements NamedJavaFunction {
+        private final RuntimeContext context;
+
+        DumpTrace(RuntimeContext context) {
+            this.context = context;
+        }
+
         // Gets the name of the Lua function as it would appear in the Lua script
         @Override
         public String getName() {
-            return "hide";
+            return "dumpTrace";
         }
 
         // This method is executed when the Lua function is called
         @Override
         public int invoke(LuaState L) {
-            functionSignature = "superawesome.hide(placementId)";
+            PluginLog.enter("superawesome.dumpTrace(path)");
 
-            if (!isSDKInitialized()) {
+            if (!isSDKInitialized(context)) {
                 return 0;
             }
 
             // check number of arguments
             int nargs = L.getTop();
             if (nargs != 1) {
-                logMsg(ERROR_MSG, "Expected 1 argument, got " + nargs);
+                PluginLog.error("Expected 1 argument, got %d", nargs);
                 return 0;
             }
 
-            String placementId = null;
-
+            String path;
             if (L.type(1) == LuaType.STRING) {
-                placementId = L.toString(1);
+                path = L.toString(1);
             } else {
-                logMsg(ERROR_MSG, "placementId (string) expected, got " + L.typeName(1));
+                PluginLog.error("path (string) expected, got: %s", L.typeName(1));
                 return 0;
             }
 
-            // get ad info
-            final CoronaAdInstance adInstance = (CoronaAdInstance) superAwesomeObjects.get(placementId);
-            if (adInstance == null) {
-                logMsg(ERROR_MSG, "placementId '" + placementId + "' not loaded");
-                return 0;
+            TraceBuffer buffer = trace;
+            if (!buffer.enabled) {
+                PluginLog.warning("Tracing is disabled. Set options.traceBufferSize in init()");
+                L.pushBoolean(false);
+                return 1;
             }
 
-            // only banners can be hidden
-            if (!adInstance.adType.equals(TYPE_BANNER)) {
-                logMsg(ERROR_MSG, "placementId '" + placementId + "' is not a banner");
-                return 0;
+            // stream straight to the file, the records are never copied
+            Writer out = null;
+            boolean success = false;
+            try {
+                out = new BufferedWriter(new FileWriter(path), 64 * 1024);
+                buffer.writeJson(out, PLUGIN_NAME);
+                success = true;
+            } catch (IOException e) {
+                PluginLog.error("Could not write trace to '%s': %s", path, e.getMessage());
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        success = false;
+                        PluginLog.error("Could not write trace to '%s': %s", path, e.getMessage());
+                    }
+                }
             }
 
-            final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-            final String fPlacementId = placementId;
-
-            if (coronaActivity != null) {
-                Runnable runnableActivity = new Runnable() {
-                    public void run() {
-                        // close banner
-                        SABannerAd banner = (SABannerAd) adInstance.adInstance;
-                        banner.close();
-
-                        // invalidate ad instance object
-                        adInstance.dealloc();
+            L.pushBoolean(success);
 
-                        // remove ad object
-                        superAwesomeObjects.remove(fPlacementId);
-                    }
-                };
+            return 1;
+        }
+    }
 
-                coronaActivity.runOnUiThread(runnableActivity);
-            }
+    // push a stats table for a placement or ad type
+    private void pushStats(LuaState L, PlacementStats stats) {
+        long fills = stats.fills.get();
+        long noFills = stats.noFills.get();
+
+        L.newTable();
+
+        L.pushString(stats.adType);
+        L.setField(-2, "adType");
+        L.pushNumber(stats.loads.get());
+        L.setField(-2, "loads");
+        L.pushNumber(fills);
+        L.setField(-2, "fills");
+        L.pushNumber(noFills);
+        L.setField(-2, "noFills");
+        L.pushNumber(stats.loadFailures.get());
+        L.setField(-2, "loadFailures");
+        L.pushNumber(((fills + noFills) > 0) ? ((double) fills / (fills + noFills)) : 0);
+        L.setField(-2, "fillRate");
+        L.pushNumber(stats.shows.get());
+        L.setField(-2, "shows");
+        L.pushNumber(stats.showFailures.get());
+        L.setField(-2, "showFailures");
+
+        pushLatency(L, stats.loadLatency);
+        L.setField(-2, "loadLatency");
+        pushLatency(L, stats.showLatency);
+        L.setField(-2, "showLatency");
+    }
 
-            return 0;
-        }
+    // push a latency summary table (milliseconds)
+    private void pushLatency(LuaState L, LatencyHistogram histogram) {
+        L.newTable();
+
+        L.pushNumber(histogram.count());
+        L.setField(-2, "count");
+        L.pushNumber(histogram.meanMs());
+        L.setField(-2, "mean");
+        L.pushNumber(histogram.percentileMs(0.5));
+        L.setField(-2, "p50");
+        L.pushNumber(histogram.percentileMs(0.9));
+        L.setField(-2, "p90");
+        L.pushNumber(histogram.percentileMs(0.99));
+        L.setField(-2, "p99");
+        L.pushNumber(histogram.maxMs());
+        L.setField(-2, "max");
     }
 
     // ----------------------------------------------------------------------------
@@ -1114,84 +3252,94 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener {
     // ----------------------------------------------------------------------------
 
     private class CoronaSADelegate implements SAInterface {
-        String adType;
+        final RuntimeContext context;
+        final String adType;
+        final String closedPhase;
+        final int closedEvent;
 
-        CoronaSADelegate(String adType) {
+        CoronaSADelegate(RuntimeContext context, String adType) {
+            this.context = context;
             this.adType = adType;
+            this.closedPhase = adType.equals(TYPE_BANNER) ? PHASE_HIDDEN : PHASE_CLOSED;
+            this.closedEvent = adType.equals(TYPE_BANNER) ? EVENT_HIDDEN : EVENT_CLOSED;
+        }
+
+        // the subscription bit of the Lua event sent for an SDK event, 0 if none is sent
+        private int eventFor(SAEvent saEvent) {
+            switch (saEvent) {
+                case adLoaded:
+                    return EVENT_LOADED;
+                case adEmpty:
+                case adFailedToLoad:
+                case adFailedToShow:
+                case adAlreadyLoaded:
+                    return EVENT_FAILED;
+                case adClicked:
+                    return EVENT_CLICKED;
+                case adClosed:
+                    return closedEvent;
+                case adEnded:
+                    return EVENT_PLAYBACK_ENDED;
+                default:
+                    return 0;
+            }
         }
 
         @Override
         public void onEvent(int placementId, SAEvent saEvent) {
-            String pid = Integer.toString(placementId);
-
-            if (saEvent == SAEvent.adLoaded) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_LOADED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adEmpty) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_FAILED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(CoronaLuaEvent.ISERROR_KEY, true);
-                coronaEvent.put(CoronaLuaEvent.RESPONSE_KEY, RESPONSE_NOADS);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adFailedToLoad) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_FAILED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(CoronaLuaEvent.ISERROR_KEY, true);
-                coronaEvent.put(CoronaLuaEvent.RESPONSE_KEY, RESPONSE_LOADFAILED);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adShown) {
-                // the displayed event is sent in the show() function since the activity takes control
-                // before this event is handled by Corona
-            } else if (saEvent == SAEvent.adFailedToShow) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_FAILED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(CoronaLuaEvent.ISERROR_KEY, true);
-                coronaEvent.put(CoronaLuaEvent.RESPONSE_KEY, RESPONSE_SHOWFAILED);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adClicked) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_CLICKED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adClosed) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, adType.equals(TYPE_BANNER) ? PHASE_HIDDEN : PHASE_CLOSED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adEnded) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_PLAYBACK_ENDED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
-            } else if (saEvent == SAEvent.adAlreadyLoaded) {
-                // send Corona Lua event
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_FAILED);
-                coronaEvent.put(EVENT_TYPE_KEY, adType);
-                coronaEvent.put(CoronaLuaEvent.ISERROR_KEY, true);
-                coronaEvent.put(CoronaLuaEvent.RESPONSE_KEY, RESPONSE_ALREADY_LOADED);
-                coronaEvent.put(EVENT_PLACEMENTID_KEY, pid);
-                dispatchLuaEvent(coronaEvent);
+            long traceStart = trace.begin();
+
+            if (PluginLog.isEnabled(PluginLog.LEVEL_DEBUG)) {
+                PluginLog.debug("%s event for placementId %d", saEvent.name(), placementId);
+            }
+
+            CoronaAdInstance adInstance = context.placements.get(placementId);
+
+            // drop events the placement (or the app, for placements not loaded by the plugin) didn't subscribe to
+            // before anything is queued for the Lua thread
+            int subscribed = (adInstance != null) ? adInstance.eventMask : context.eventMask;
+            if ((subscribed & eventFor(saEvent)) != 0) {
+                // send Corona Lua event (no allocations: event records are pooled and placement id strings cached)
+                switch (saEvent) {
+                    case adLoaded:
+                        dispatchLuaEvent(context, PHASE_LOADED, adType, placementId);
+                        break;
+                    case adEmpty:
+                        dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_NOADS);
+                        break;
+                    case adFailedToLoad:
+                        dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_LOADFAILED);
+                        break;
+                    case adShown:
+                        // the displayed event is sent in the show() function since the activity takes control
+                        // before this event is handled by Corona
+                        break;
+                    case adFailedToShow:
+                        dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_SHOWFAILED);
+                        break;
+                    case adClicked:
+                        dispatchLuaEvent(context, PHASE_CLICKED, adType, placementId);
+                        break;
+                    case adClosed:
+                        dispatchLuaEvent(context, closedPhase, adType, placementId);
+                        break;
+                    case adEnded:
+                        dispatchLuaEvent(context, PHASE_PLAYBACK_ENDED, adType, placementId);
+                        break;
+                    case adAlreadyLoaded:
+                        dispatchLuaEvent(context, PHASE_FAILED, adType, placementId, RESPONSE_ALREADY_LOADED);
+                        break;
+                }
             }
+
+            // after the Lua event is queued, so a listener release queued when the placement leaves the registry
+            // comes after its closed or failed event
+            if (adInstance != null) {
+                adInstance.onSdkEvent(saEvent);
+            }
+
+            trace.end(TraceBuffer.CATEGORY_SDK, saEvent.name(), traceStart,
+                    (adInstance != null) ? adInstance.placementIdString : null);
         }
     }
 }
@@ -0,0 +1,200 @@
+//
+//  LuaOptionSchema.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.HashMap;
+
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.LuaType;
+
+/**
+ * Compiled description of a Lua options table (key names and accepted value types).
+ * <p>
+ * A schema parses a table in a single traversal into a {@link Values} holder that can be reused between calls.
+ * Keys are dispatched through a hash lookup and the validation messages are built once when the schema is compiled.
+ */
+final class LuaOptionSchema {
+    // accepted Lua types (can be combined)
+    static final int TYPE_BOOLEAN = 1;
+    static final int TYPE_NUMBER = 2;
+    static final int TYPE_STRING = 4;
+
+    // a single key of an options table. the slot is its position in the schema(s) it belongs to
+    static final class Option {
+        final String name;
+        final int types;
+        int slot = -1;
+
+        private Option(String name, int types) {
+            this.name = name;
+            this.types = types;
+        }
+    }
+
+    // parsed option values, indexed by option slot
+    static final class Values {
+        private final boolean[] present;
+        private final LuaType[] luaTypes;
+        private final boolean[] booleans;
+        private final double[] numbers;
+        private final String[] strings;
+
+        private Values(int size) {
+            present = new boolean[size];
+            luaTypes = new LuaType[size];
+            booleans = new boolean[size];
+            numbers = new double[size];
+            strings = new String[size];
+        }
+
+        void reset() {
+            for (int i = 0; i < present.length; i++) {
+                present[i] = false;
+                luaTypes[i] = null;
+                strings[i] = null;
+            }
+        }
+
+        // options of a wider schema (see extend()) are never present in a narrower one
+        boolean has(Option option) {
+            return (option.slot < present.length) && present[option.slot];
+        }
+
+        // true if the option was set to a value of the given Lua type
+        boolean isType(Option option, LuaType type) {
+            return has(option) && (luaTypes[option.slot] == type);
+        }
+
+        boolean getBoolean(Option option, boolean defaultValue) {
+            return isType(option, LuaType.BOOLEAN) ? booleans[option.slot] : defaultValue;
+        }
+
+        double getNumber(Option option, double defaultValue) {
+            return isType(option, LuaType.NUMBER) ? numbers[option.slot] : defaultValue;
+        }
+
+        String getString(Option option, String defaultValue) {
+            return isType(option, LuaType.STRING) ? strings[option.slot] : defaultValue;
+        }
+    }
+
+    private final Option[] options;
+    private final String[] expectedMessages;        // ".name (type) expected, got: "
+    private final HashMap<String, Option> optionsByName = new HashMap<>();
+
+    static Option option(String name, int types) {
+        return new Option(name, types);
+    }
+
+    static LuaOptionSchema compile(Option... options) {
+        return new LuaOptionSchema(options);
+    }
+
+    private LuaOptionSchema(Option[] options) {
+        this.options = options;
+        this.expectedMessages = new String[options.length];
+
+        for (int i = 0; i < options.length; i++) {
+            Option option = options[i];
+
+            // options shared between schemas must keep the same slot (extend() appends)
+            if ((option.slot != -1) && (option.slot != i)) {
+                throw new IllegalStateException("option '" + option.name + "' has slot " + option.slot + " in another schema");
+            }
+            option.slot = i;
+
+            optionsByName.put(option.name, option);
+            expectedMessages[i] = "." + option.name + " (" + describeTypes(option.types) + ") expected, got: ";
+        }
+    }
+
+    // a new schema with the options of this one plus the given options
+    LuaOptionSchema extend(Option... more) {
+        Option[] combined = new Option[options.length + more.length];
+        System.arraycopy(options, 0, combined, 0, options.length);
+        System.arraycopy(more, 0, combined, options.length, more.length);
+
+        return new LuaOptionSchema(combined);
+    }
+
+    Values newValues() {
+        return new Values(options.length);
+    }
+
+    /**
+     * Parses the options table at the given (absolute) stack index into values.
+     *
+     * @return null on success, otherwise the validation error message.
+     */
+    String parse(LuaState L, int index, String tableName, Values values) {
+        return parse(L, index, tableName, 0, values);
+    }
+
+    /**
+     * Parses the options table tableName[arrayIndex] (tableName itself when arrayIndex is 0).
+     * The element name is only built for the error message.
+     */
+    String parse(LuaState L, int index, String tableName, int arrayIndex, Values values) {
+        values.reset();
+
+        for (L.pushNil(); L.next(index); L.pop(1)) {
+            if (L.type(-2) != LuaType.STRING) {
+                L.pop(2);
+                return elementName(tableName, arrayIndex) + " must be a key/value table";
+            }
+
+            String key = L.toString(-2);
+            Option option = optionsByName.get(key);
+
+            if (option == null) {
+                L.pop(2);
+                return "Invalid option '" + key + "'";
+            }
+
+            int slot = option.slot;
+            LuaType type = L.type(-1);
+
+            if ((type == LuaType.BOOLEAN) && ((option.types & TYPE_BOOLEAN) != 0)) {
+                values.booleans[slot] = L.toBoolean(-1);
+            } else if ((type == LuaType.NUMBER) && ((option.types & TYPE_NUMBER) != 0)) {
+                values.numbers[slot] = L.toNumber(-1);
+            } else if ((type == LuaType.STRING) && ((option.types & TYPE_STRING) != 0)) {
+                values.strings[slot] = L.toString(-1);
+            } else {
+                String error = elementName(tableName, arrayIndex) + expectedMessages[slot] + L.typeName(-1);
+                L.pop(2);
+                return error;
+            }
+
+            values.present[slot] = true;
+            values.luaTypes[slot] = type;
+        }
+
+        return null;
+    }
+
+    private static String elementName(String tableName, int arrayIndex) {
+        return (arrayIndex == 0) ? tableName : (tableName + "[" + arrayIndex + "]");
+    }
+
+    private static String describeTypes(int types) {
+        StringBuilder description = new StringBuilder();
+
+        if ((types & TYPE_BOOLEAN) != 0) {
+            description.append("boolean");
+        }
+        if ((types & TYPE_STRING) != 0) {
+            description.append(description.length() > 0 ? " or " : "").append("string");
+        }
+        if ((types & TYPE_NUMBER) != 0) {
+            description.append(description.length() > 0 ? " or " : "").append("number");
+        }
+
+        return description.toString();
+    }
+}
@@ -0,0 +1,143 @@
+//
+//  PlacementRegistry.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Int-keyed map of placements that can be read from any thread without locking.
+ * <p>
+ * Writes (load, hide, exit) are rare compared to reads (isLoaded, show, SDK callbacks), so the map is
+ * copy-on-write: writers publish a new sorted snapshot and readers binary search the current one.
+ * Hot paths scan it with size() and valueAt(), which don't allocate.
+ */
+final class PlacementRegistry<T> {
+    // decides which values compact() keeps
+    interface Filter<T> {
+        boolean retain(T value);
+    }
+
+    private static final class Snapshot {
+        final int[] keys;
+        final Object[] values;
+
+        Snapshot(int[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new int[0], new Object[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    // returns the value for key or null (never blocks)
+    @SuppressWarnings("unchecked")
+    T get(int key) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.keys, key);
+
+        return (index >= 0) ? (T) current.values[index] : null;
+    }
+
+    int size() {
+        return snapshot.keys.length;
+    }
+
+    // returns the value at index (in key order) or null past the end. the index refers to the current snapshot,
+    // so a scan that races with a write may skip or repeat a value (never blocks, never allocates)
+    @SuppressWarnings("unchecked")
+    T valueAt(int index) {
+        Object[] values = snapshot.values;
+        return (index < values.length) ? (T) values[index] : null;
+    }
+
+    // returns an immutable view of the values at the time of the call
+    @SuppressWarnings("unchecked")
+    List<T> values() {
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(snapshot.values));
+    }
+
+    synchronized void put(int key, T value) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.keys, key);
+
+        if (index >= 0) {
+            Object[] values = current.values.clone();
+            values[index] = value;
+            snapshot = new Snapshot(current.keys, values);
+        } else {
+            int insertAt = -(index + 1);
+            int count = current.keys.length;
+            int[] keys = new int[count + 1];
+            Object[] values = new Object[count + 1];
+
+            System.arraycopy(current.keys, 0, keys, 0, insertAt);
+            System.arraycopy(current.values, 0, values, 0, insertAt);
+            keys[insertAt] = key;
+            values[insertAt] = value;
+            System.arraycopy(current.keys, insertAt, keys, insertAt + 1, count - insertAt);
+            System.arraycopy(current.values, insertAt, values, insertAt + 1, count - insertAt);
+
+            snapshot = new Snapshot(keys, values);
+        }
+    }
+
+    // removes the mapping for key only if it is still mapped to value
+    synchronized boolean remove(int key, T value) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.keys, key);
+
+        if ((index < 0) || (current.values[index] != value)) {
+            return false;
+        }
+
+        int count = current.keys.length;
+        int[] keys = new int[count - 1];
+        Object[] values = new Object[count - 1];
+
+        System.arraycopy(current.keys, 0, keys, 0, index);
+        System.arraycopy(current.values, 0, values, 0, index);
+        System.arraycopy(current.keys, index + 1, keys, index, count - index - 1);
+        System.arraycopy(current.values, index + 1, values, index, count - index - 1);
+
+        snapshot = (count == 1) ? EMPTY : new Snapshot(keys, values);
+
+        return true;
+    }
+
+    // removes every value the filter doesn't retain with a single copy, returns how many were removed
+    @SuppressWarnings("unchecked")
+    synchronized int compact(Filter<T> filter) {
+        Snapshot current = snapshot;
+        int count = current.keys.length;
+        int[] keys = new int[count];
+        Object[] values = new Object[count];
+        int kept = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (filter.retain((T) current.values[i])) {
+                keys[kept] = current.keys[i];
+                values[kept] = current.values[i];
+                kept++;
+            }
+        }
+
+        if (kept < count) {
+            snapshot = (kept == 0) ? EMPTY : new Snapshot(Arrays.copyOf(keys, kept), Arrays.copyOf(values, kept));
+        }
+
+        return count - kept;
+    }
+
+    synchronized void clear() {
+        snapshot = EMPTY;
+    }
+}
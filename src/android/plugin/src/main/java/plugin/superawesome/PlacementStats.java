@@ -0,0 +1,100 @@
+//
+//  PlacementStats.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load/show counters and latencies of a placement (or of all placements of an ad type).
+ * <p>
+ * Placement stats also record into the stats of their ad type. Safe to record from any thread.
+ * They also hold the load retry governor of the placement, so a backoff survives hide() and reloads.
+ */
+final class PlacementStats {
+    final String placementId;       // null for ad type stats
+    final String adType;
+    private final PlacementStats adTypeStats;
+
+    final LatencyHistogram loadLatency = new LatencyHistogram();    // load() -> adLoaded
+    final LatencyHistogram showLatency = new LatencyHistogram();    // show() -> displayed event
+    final AtomicLong loads = new AtomicLong();
+    final AtomicLong fills = new AtomicLong();
+    final AtomicLong noFills = new AtomicLong();
+    final AtomicLong loadFailures = new AtomicLong();
+    final AtomicLong shows = new AtomicLong();
+    final AtomicLong showFailures = new AtomicLong();
+
+    // load retry governor, placement stats only (written on the UI thread, read when load() is called)
+    int consecutiveFailures = 0;
+    int consecutiveNoFills = 0;
+    volatile long nextLoadAllowedAt = 0;
+
+    PlacementStats(String placementId, String adType, PlacementStats adTypeStats) {
+        this.placementId = placementId;
+        this.adType = adType;
+        this.adTypeStats = adTypeStats;
+    }
+
+    void recordLoad() {
+        loads.incrementAndGet();
+        if (adTypeStats != null) {
+            adTypeStats.recordLoad();
+        }
+    }
+
+    void recordFill(long latencyNanos) {
+        fills.incrementAndGet();
+        loadLatency.record(latencyNanos);
+        if (adTypeStats != null) {
+            adTypeStats.recordFill(latencyNanos);
+        }
+    }
+
+    void recordNoFill() {
+        noFills.incrementAndGet();
+        if (adTypeStats != null) {
+            adTypeStats.recordNoFill();
+        }
+    }
+
+    void recordLoadFailure() {
+        loadFailures.incrementAndGet();
+        if (adTypeStats != null) {
+            adTypeStats.recordLoadFailure();
+        }
+    }
+
+    void recordShow(long latencyNanos) {
+        shows.incrementAndGet();
+        showLatency.record(latencyNanos);
+        if (adTypeStats != null) {
+            adTypeStats.recordShow(latencyNanos);
+        }
+    }
+
+    void recordShowFailure() {
+        showFailures.incrementAndGet();
+        if (adTypeStats != null) {
+            adTypeStats.recordShowFailure();
+        }
+    }
+
+    void reset() {
+        loadLatency.reset();
+        showLatency.reset();
+        loads.set(0);
+        fills.set(0);
+        noFills.set(0);
+        loadFailures.set(0);
+        shows.set(0);
+        showFailures.set(0);
+        consecutiveFailures = 0;
+        consecutiveNoFills = 0;
+        nextLoadAllowedAt = 0;
+    }
+}
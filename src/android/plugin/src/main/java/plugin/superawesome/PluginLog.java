@@ -0,0 +1,155 @@
+//
+//  PluginLog.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.util.Locale;
+
+import android.util.Log;
+
+/**
+ * Leveled console logging for the plugin.
+ * <p>
+ * Messages are format strings that are only formatted when their level is enabled, so disabled calls cost a level
+ * check (avoid passing boxed primitives on hot paths, or guard them with isEnabled()). Messages are prefixed with the
+ * Lua function being executed by the calling thread. LEVEL_NONE turns logging off, including the function context.
+ */
+final class PluginLog {
+    static final int LEVEL_NONE = 0;
+    static final int LEVEL_ERROR = 1;
+    static final int LEVEL_WARNING = 2;
+    static final int LEVEL_INFO = 3;
+    static final int LEVEL_DEBUG = 4;
+    static final int DEFAULT_LEVEL = LEVEL_INFO;
+
+    private static final String TAG = "Corona";
+
+    // level names (as passed to init) and message prefixes, indexed by level
+    private static final String[] LEVEL_NAMES = {"none", "error", "warning", "info", "debug"};
+    private static final String[] LEVEL_PREFIXES = {"", "ERROR: ", "WARNING: ", "", "DEBUG: "};
+
+    private static volatile int level = DEFAULT_LEVEL;
+
+    // signature of the Lua function executing on the current thread
+    private static final ThreadLocal<String> functionSignature = new ThreadLocal<>();
+
+    private PluginLog() {
+    }
+
+    // returns the level with the given name, or -1
+    static int parseLevel(String name) {
+        for (int i = 0; i < LEVEL_NAMES.length; i++) {
+            if (LEVEL_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    static void setLevel(int newLevel) {
+        level = newLevel;
+        if (newLevel == LEVEL_NONE) {
+            functionSignature.remove();
+        }
+    }
+
+    static boolean isEnabled(int messageLevel) {
+        return messageLevel <= level;
+    }
+
+    // set the function context of the calling thread (called on entry of every Lua function)
+    static void enter(String signature) {
+        if (level != LEVEL_NONE) {
+            functionSignature.set(signature);
+        }
+    }
+
+    static void error(String message) {
+        if (LEVEL_ERROR <= level) {
+            write(LEVEL_ERROR, message);
+        }
+    }
+
+    static void error(String format, Object arg) {
+        if (LEVEL_ERROR <= level) {
+            write(LEVEL_ERROR, String.format(Locale.US, format, arg));
+        }
+    }
+
+    static void error(String format, Object arg1, Object arg2) {
+        if (LEVEL_ERROR <= level) {
+            write(LEVEL_ERROR, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    static void warning(String message) {
+        if (LEVEL_WARNING <= level) {
+            write(LEVEL_WARNING, message);
+        }
+    }
+
+    static void warning(String format, Object arg) {
+        if (LEVEL_WARNING <= level) {
+            write(LEVEL_WARNING, String.format(Locale.US, format, arg));
+        }
+    }
+
+    static void warning(String format, Object arg1, Object arg2) {
+        if (LEVEL_WARNING <= level) {
+            write(LEVEL_WARNING, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    static void info(String message) {
+        if (LEVEL_INFO <= level) {
+            write(LEVEL_INFO, message);
+        }
+    }
+
+    static void info(String format, Object arg) {
+        if (LEVEL_INFO <= level) {
+            write(LEVEL_INFO, String.format(Locale.US, format, arg));
+        }
+    }
+
+    static void info(String format, Object arg1, Object arg2) {
+        if (LEVEL_INFO <= level) {
+            write(LEVEL_INFO, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    static void debug(String message) {
+        if (LEVEL_DEBUG <= level) {
+            write(LEVEL_DEBUG, message);
+        }
+    }
+
+    static void debug(String format, Object arg) {
+        if (LEVEL_DEBUG <= level) {
+            write(LEVEL_DEBUG, String.format(Locale.US, format, arg));
+        }
+    }
+
+    static void debug(String format, Object arg1, Object arg2) {
+        if (LEVEL_DEBUG <= level) {
+            write(LEVEL_DEBUG, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    private static void write(int messageLevel, String message) {
+        StringBuilder line = new StringBuilder(LEVEL_PREFIXES[messageLevel]);
+
+        // info messages are not tied to a function call
+        String signature = functionSignature.get();
+        if ((signature != null) && (messageLevel != LEVEL_INFO)) {
+            line.append(signature).append(", ");
+        }
+
+        Log.i(TAG, line.append(message).toString());
+    }
+}
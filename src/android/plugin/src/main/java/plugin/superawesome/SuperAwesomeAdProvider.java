@@ -0,0 +1,168 @@
+//
+//  SuperAwesomeAdProvider.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+
+import static java.lang.Math.random;
+
+import tv.superawesome.sdk.publisher.AwesomeAds;
+import tv.superawesome.sdk.publisher.SABannerAd;
+import tv.superawesome.sdk.publisher.SAInterface;
+import tv.superawesome.sdk.publisher.SAInterstitialAd;
+import tv.superawesome.sdk.publisher.SAOrientation;
+import tv.superawesome.sdk.publisher.SAVideoAd;
+
+/**
+ * {@link AdProvider} backed by the SuperAwesome SDK.
+ */
+final class SuperAwesomeAdProvider implements AdProvider {
+    private static final class SuperAwesomeBanner implements Banner {
+        private final SABannerAd bannerAd;
+        private int visibilityBeforePause = -1;     // -1 when not paused
+
+        SuperAwesomeBanner(SABannerAd bannerAd) {
+            this.bannerAd = bannerAd;
+        }
+
+        @Override
+        public View getView() {
+            return bannerAd;
+        }
+
+        @Override
+        public void setListener(SAInterface listener) {
+            bannerAd.setListener(listener);
+        }
+
+        @Override
+        public void load(int placementId, boolean testMode) {
+            bannerAd.setTestMode(testMode);
+            bannerAd.load(placementId);
+        }
+
+        @Override
+        public boolean hasAdAvailable() {
+            return bannerAd.hasAdAvailable();
+        }
+
+        @Override
+        public void play(Context context) {
+            bannerAd.play(context);
+        }
+
+        @Override
+        public void close() {
+            bannerAd.close();
+        }
+
+        // the SDK has no refresh control: hide the banner so it stops drawing and pause its web players
+        @Override
+        public void pause() {
+            if (visibilityBeforePause == -1) {
+                visibilityBeforePause = bannerAd.getVisibility();
+                bannerAd.setVisibility(View.INVISIBLE);
+                setWebViewsPaused(bannerAd, true);
+            }
+        }
+
+        @Override
+        public void resume() {
+            if (visibilityBeforePause != -1) {
+                setWebViewsPaused(bannerAd, false);
+                bannerAd.setVisibility(visibilityBeforePause);
+                visibilityBeforePause = -1;
+            }
+        }
+
+        private static void setWebViewsPaused(ViewGroup group, boolean paused) {
+            for (int i = 0; i < group.getChildCount(); i++) {
+                View child = group.getChildAt(i);
+
+                if (child instanceof WebView) {
+                    if (paused) {
+                        ((WebView) child).onPause();
+                    } else {
+                        ((WebView) child).onResume();
+                    }
+                } else if (child instanceof ViewGroup) {
+                    setWebViewsPaused((ViewGroup) child, paused);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void init(Activity activity, boolean testMode) {
+        AwesomeAds.init(activity, testMode);
+    }
+
+    @Override
+    public void setInterstitialListener(SAInterface listener) {
+        SAInterstitialAd.setListener(listener);
+    }
+
+    @Override
+    public void loadInterstitial(int placementId, boolean testMode, Context context) {
+        SAInterstitialAd.setTestMode(testMode);
+        SAInterstitialAd.load(placementId, context);
+    }
+
+    @Override
+    public boolean hasInterstitial(int placementId) {
+        return SAInterstitialAd.hasAdAvailable(placementId);
+    }
+
+    @Override
+    public void playInterstitial(int placementId, boolean parentalGate, SAOrientation orientation, Context context) {
+        SAInterstitialAd.setParentalGate(parentalGate);
+        SAInterstitialAd.setOrientation(orientation);
+        SAInterstitialAd.play(placementId, context);
+    }
+
+    @Override
+    public void setVideoListener(SAInterface listener) {
+        SAVideoAd.setListener(listener);
+    }
+
+    @Override
+    public void loadVideo(int placementId, boolean testMode, Context context) {
+        SAVideoAd.setTestMode(testMode);
+        SAVideoAd.load(placementId, context);
+    }
+
+    @Override
+    public boolean hasVideo(int placementId) {
+        return SAVideoAd.hasAdAvailable(placementId);
+    }
+
+    @Override
+    public void playVideo(int placementId, boolean parentalGate, boolean closeButton, boolean smallClickZone, boolean closeAtEnd,
+                          SAOrientation orientation, Context context) {
+        SAVideoAd.setParentalGate(parentalGate);
+        SAVideoAd.setCloseButton(closeButton);
+        SAVideoAd.setSmallClick(smallClickZone);
+        SAVideoAd.setCloseAtEnd(closeAtEnd);
+        SAVideoAd.setOrientation(orientation);
+        SAVideoAd.play(placementId, context);
+    }
+
+    @Override
+    public Banner createBanner(Context context, boolean transparent) {
+        SABannerAd bannerAd = new SABannerAd(context);
+        bannerAd.setId((int) (random() * Integer.MAX_VALUE)); // set an id to avoid crash when displaying ad
+        bannerAd.setColor(transparent);
+        bannerAd.setVisibility(View.INVISIBLE);
+
+        return new SuperAwesomeBanner(bannerAd);
+    }
+}
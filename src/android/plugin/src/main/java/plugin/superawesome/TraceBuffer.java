@@ -0,0 +1,227 @@
+//
+//  TraceBuffer.java
+//  SuperAwesome Plugin
+//
+//  Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+
+
+package plugin.superawesome;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of plugin lifecycle trace records, written out as Chrome/Perfetto trace-event JSON.
+ * <p>
+ * Writers claim a slot with a single atomic increment and never block, the oldest records are overwritten.
+ * Names, categories and arguments must be preallocated strings (constants, enum names, cached placement ids) so
+ * recording does not allocate. The {@link #DISABLED} instance returns after one field check.
+ */
+final class TraceBuffer {
+    static final TraceBuffer DISABLED = new TraceBuffer(0);
+
+    // record categories
+    static final String CATEGORY_LUA = "lua";           // Lua function calls
+    static final String CATEGORY_UI = "ui";             // UI thread runnables
+    static final String CATEGORY_SDK = "sdk";           // SDK callbacks
+    static final String CATEGORY_EVENT = "event";       // Lua event dispatch
+
+    private static final int MAX_CAPACITY = 1 << 16;
+    private static final char PHASE_COMPLETE = 'X';
+    private static final char PHASE_INSTANT = 'i';
+
+    final boolean enabled;
+    private final int mask;
+    private final long origin = System.nanoTime();
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // sequence + 1 of the record stored in each slot, 0 while the slot is being written
+    private final AtomicLongArray published;
+    private final char[] phases;
+    private final String[] categories;
+    private final String[] names;
+    private final String[] args;
+    private final String[] threads;
+    private final long[] timestamps;
+    private final long[] durations;
+
+    // capacity is rounded up to a power of two, 0 disables tracing
+    TraceBuffer(int capacity) {
+        int size = 0;
+        if (capacity > 0) {
+            size = Integer.highestOneBit(Math.min(capacity, MAX_CAPACITY));
+            if (size < capacity && size < MAX_CAPACITY) {
+                size <<= 1;
+            }
+        }
+
+        enabled = (size > 0);
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        phases = new char[size];
+        categories = new String[size];
+        names = new String[size];
+        args = new String[size];
+        threads = new String[size];
+        timestamps = new long[size];
+        durations = new long[size];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    // start time of a span, pass it to end()
+    long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // record a span started with begin(). arg is an optional placement id
+    void end(String category, String name, long startedAt, String arg) {
+        if (!enabled || (startedAt == 0)) {
+            return;
+        }
+
+        record(PHASE_COMPLETE, category, name, startedAt, System.nanoTime() - startedAt, arg);
+    }
+
+    // record a point in time
+    void instant(String category, String name, String arg) {
+        if (!enabled) {
+            return;
+        }
+
+        record(PHASE_INSTANT, category, name, System.nanoTime(), 0, arg);
+    }
+
+    private void record(char phase, String category, String name, long timestamp, long duration, String arg) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & mask);
+
+        // unpublish first (full barrier) so readers never take a half written record for the previous one
+        published.getAndSet(slot, 0);
+
+        phases[slot] = phase;
+        categories[slot] = category;
+        names[slot] = name;
+        args[slot] = arg;
+        threads[slot] = Thread.currentThread().getName();
+        timestamps[slot] = timestamp;
+        durations[slot] = duration;
+
+        published.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * Streams the records, oldest first, as a trace-event JSON object. Records overwritten while writing are skipped.
+     *
+     * @return the number of records written.
+     */
+    int writeJson(Writer out, String processName) throws IOException {
+        HashMap<String, Integer> threadIds = new HashMap<>();
+        int written = 0;
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":");
+        writeString(out, processName);
+        out.write("}}");
+
+        long end = nextSequence.get();
+        for (long sequence = Math.max(0, end - capacity()); sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence + 1) {
+                continue;
+            }
+
+            char phase = phases[slot];
+            String category = categories[slot];
+            String name = names[slot];
+            String arg = args[slot];
+            String thread = threads[slot];
+            long timestamp = timestamps[slot];
+            long duration = durations[slot];
+
+            if (published.get(slot) != sequence + 1) {
+                continue;
+            }
+
+            Integer tid = threadIds.get(thread);
+            if (tid == null) {
+                tid = threadIds.size() + 1;
+                threadIds.put(thread, tid);
+
+                out.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+                out.write(Integer.toString(tid));
+                out.write(",\"args\":{\"name\":");
+                writeString(out, thread);
+                out.write("}}");
+            }
+
+            out.write(",\n{\"name\":");
+            writeString(out, name);
+            out.write(",\"cat\":");
+            writeString(out, category);
+            out.write(",\"ph\":\"");
+            out.write(phase);
+            out.write("\",\"ts\":");
+            writeMicros(out, timestamp - origin);
+            if (phase == PHASE_COMPLETE) {
+                out.write(",\"dur\":");
+                writeMicros(out, duration);
+            } else {
+                out.write(",\"s\":\"t\"");
+            }
+            out.write(",\"pid\":1,\"tid\":");
+            out.write(Integer.toString(tid));
+            if (arg != null) {
+                out.write(",\"args\":{\"placementId\":");
+                writeString(out, arg);
+                out.write("}");
+            }
+            out.write("}");
+
+            written++;
+        }
+
+        out.write("\n]}\n");
+
+        return written;
+    }
+
+    // nanoseconds as microseconds with 3 decimals
+    private static void writeMicros(Writer out, long nanos) throws IOException {
+        if (nanos < 0) {
+            out.write('-');
+            nanos = -nanos;
+        }
+
+        long fraction = nanos % 1000;
+
+        out.write(Long.toString(nanos / 1000));
+        out.write('.');
+        out.write((char) ('0' + (fraction / 100)));
+        out.write((char) ('0' + (fraction / 10 % 10)));
+        out.write((char) ('0' + (fraction % 10)));
+    }
+
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+
+        out.write('"');
+    }
+}